@@ -0,0 +1,58 @@
+package org.cli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Тестовые данные для бенчмарков: детерминированный лог заданного размера.
+ */
+final class BenchmarkData {
+    private static final String[] LEVELS = {"INFO", "DEBUG", "WARN", "INFO", "TRACE"};
+    private static final String[] WORDS = {"request", "handled", "user", "cache", "miss", "Запрос", "обработан",
+            "session", "timeout", "retry", "ok", "pool", "thread", "latency", "ms"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Создаёт файл с логом не меньше заданного размера. Примерно каждая 50-я строка содержит ERROR.
+     */
+    static Path logFile(Path directory, long size) throws IOException {
+        Path file = directory.resolve("log-" + size + ".txt");
+        Random random = new Random(42);
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long line = 0; written < size; line++) {
+                StringBuilder text = new StringBuilder();
+                text.append(line).append(' ')
+                        .append(random.nextInt(50) == 0 ? "ERROR" : LEVELS[random.nextInt(LEVELS.length)]);
+                int words = 4 + random.nextInt(10);
+                for (int i = 0; i < words; i++) {
+                    text.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                text.append('\n');
+                writer.write(text.toString());
+                written += text.toString().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return file;
+    }
+
+    /** Удаляет каталог с данными */
+    static void delete(Path directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
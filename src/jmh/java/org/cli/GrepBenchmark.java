@@ -0,0 +1,88 @@
+package org.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск {@link GrepHandler} по файлу и по потоку stdin.
+ * Пары literal/regex и literalIgnoreCase/regexIgnoreCase находят одни и те же строки, но regex-шаблон
+ * не проходит по быстрому пути поиска подстроки в байтах, что позволяет сравнить оба пути.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GrepBenchmark {
+    @Param({"1048576", "67108864"})
+    public long size;
+
+    @Param({"literal", "regex", "literalIgnoreCase", "regexIgnoreCase", "wholeWord"})
+    public String pattern;
+
+    @Param({"none", "count", "context"})
+    public String flags;
+
+    private Path directory;
+    private Path file;
+    private GrepHandler handler;
+    private List<String> fileArgs;
+    private List<String> stdinArgs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("grep-bench");
+        file = BenchmarkData.logFile(directory, size);
+        handler = new GrepHandler(new Environment());
+
+        List<String> args = new ArrayList<>();
+        switch (flags) {
+            case "count" -> args.add("-c");
+            case "context" -> args.addAll(List.of("-C", "2"));
+            default -> {
+            }
+        }
+        switch (pattern) {
+            case "literal" -> args.add("ERROR");
+            case "regex" -> args.add("ERR[O]R");
+            case "literalIgnoreCase" -> args.addAll(List.of("-i", "error"));
+            case "regexIgnoreCase" -> args.addAll(List.of("-i", "err[o]r"));
+            default -> args.addAll(List.of("-w", "ERROR"));
+        }
+        stdinArgs = List.copyOf(args);
+        args.add(file.toString());
+        fileArgs = List.copyOf(args);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public int searchFile() throws IOException {
+        return handler.execute(fileArgs, null, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public int searchStdin() throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return handler.execute(stdinArgs, input, OutputStream.nullOutputStream());
+        }
+    }
+}
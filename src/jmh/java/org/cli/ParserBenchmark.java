@@ -0,0 +1,54 @@
+package org.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор строк команд: полный {@link Parser#parse} с кэшем и только лексический разбор без кэша.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+    private static final Map<String, String> LINES = Map.of(
+            "simple", "cat file.txt",
+            "quoted", "grep -i \"hello | world\" 'some file.txt'",
+            "variables", "echo \"$USER at $HOST\" $HOME/$FILE",
+            "pipeline", "cat app.log | grep -w ERROR | grep -v DEBUG | wc -l");
+
+    @Param({"simple", "quoted", "variables", "pipeline"})
+    public String line;
+
+    private Parser parser;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        Environment environment = new Environment();
+        environment.setVariable("USER", "bench");
+        environment.setVariable("HOST", "localhost");
+        environment.setVariable("FILE", "data.txt");
+        parser = new Parser(environment, new Executor(environment));
+        input = LINES.get(line);
+    }
+
+    @Benchmark
+    public List<Command> parseCached() {
+        return parser.parse(input);
+    }
+
+    @Benchmark
+    public Object lexUncached() {
+        return Parser.lex(input);
+    }
+}
@@ -0,0 +1,68 @@
+package org.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пайплайн `cat FILE | cat | ... | grep ERROR | wc -l` заданной глубины: стоимость передачи данных
+ * между параллельными стадиями через {@link Pipe}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PipelineBenchmark {
+    @Param({"1048576", "67108864"})
+    public long size;
+
+    @Param({"1", "2", "4", "8"})
+    public int depth;
+
+    private Path directory;
+    private Executor executor;
+    private List<Command> commands;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("pipeline-bench");
+        Path file = BenchmarkData.logFile(directory, size);
+        executor = new Executor(new Environment());
+
+        commands = new ArrayList<>();
+        commands.add(new Command("cat", List.of(file.toString())));
+        for (int i = 1; i < depth - 2; i++) {
+            commands.add(new Command("cat", List.of()));
+        }
+        if (depth >= 2) {
+            commands.add(new Command("grep", List.of("ERROR")));
+        }
+        if (depth >= 3) {
+            commands.add(new Command("wc", List.of("-l")));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public int execute() throws IOException {
+        return new Pipeline(commands).execute(executor, OutputStream.nullOutputStream());
+    }
+}
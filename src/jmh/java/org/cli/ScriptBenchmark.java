@@ -0,0 +1,62 @@
+package org.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетный режим `cli script.txt`: результат — число выполненных команд в секунду.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScriptBenchmark {
+    private static final int COMMANDS = 10_000;
+    private static final String[] LINES = {
+            "set NAME=value",
+            "echo hello $NAME",
+            "echo \"a | b\" | wc -w",
+            "echo ERROR in line | grep -c ERROR",
+    };
+
+    private Path directory;
+    private String[] args;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("script-bench");
+        Path data = BenchmarkData.logFile(directory, 4096);
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < COMMANDS; i++) {
+            script.append(i % 5 == 4 ? "wc -l " + data : LINES[i % LINES.length]).append('\n');
+        }
+        Path file = directory.resolve("script.txt");
+        Files.writeString(file, script);
+        args = new String[]{file.toString()};
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public int runScript() {
+        return Main.run(args, InputStream.nullInputStream(), OutputStream.nullOutputStream(), false);
+    }
+}
@@ -0,0 +1,73 @@
+package org.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подсчёт {@link WcHandler} по файлу (параллельно по отображённым в память участкам) и по потоку stdin.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WcBenchmark {
+    @Param({"1048576", "67108864"})
+    public long size;
+
+    @Param({"all", "-l", "-w", "-c"})
+    public String flags;
+
+    private Path directory;
+    private Path file;
+    private WcHandler handler;
+    private List<String> fileArgs;
+    private List<String> stdinArgs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wc-bench");
+        file = BenchmarkData.logFile(directory, size);
+        handler = new WcHandler();
+
+        List<String> args = new ArrayList<>();
+        if (!flags.equals("all")) {
+            args.add(flags);
+        }
+        stdinArgs = List.copyOf(args);
+        args.add(file.toString());
+        fileArgs = List.copyOf(args);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public int countFile() throws IOException {
+        return handler.execute(fileArgs, null, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public int countStdin() throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return handler.execute(stdinArgs, input, OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Буферизованный вывод интерпретатора в канал (для stdout — {@link FileChannel}).
+ * Мелкие записи копируются в прямой буфер и уходят в канал одним системным вызовом, когда буфер заполнится;
+ * записи не меньше буфера сбрасывают накопленное и пишутся в канал напрямую, а файлы (`cat`) передаются в канал
+ * через {@link FileChannel#transferTo} — для stdout это sendfile.
+ * Когда ещё сбрасывать буфер, определяет {@link FlushPolicy}.
+ */
+public class ChannelOutputStream extends OutputStream implements WritableByteChannel, FileTransferTarget {
+    /** Политика сброса буфера */
+    public enum FlushPolicy {
+        /** После каждой команды, чтобы пользователь сразу видел результат (интерактивный режим) */
+        EACH_COMMAND,
+        /** Только при заполнении буфера и в конце работы (пакетный режим, вывод в файл или канал) */
+        WHEN_FULL
+    }
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final FlushPolicy policy;
+    private boolean open = true;
+
+    public ChannelOutputStream(WritableByteChannel channel, int bufferSize, FlushPolicy policy) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.policy = policy;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len >= buffer.capacity()) {
+            drain();
+            writeFully(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+        if (len > buffer.remaining()) {
+            drain();
+        }
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        if (length >= buffer.capacity()) {
+            drain();
+            writeFully(src);
+        } else {
+            if (length > buffer.remaining()) {
+                drain();
+            }
+            buffer.put(src);
+        }
+        return length;
+    }
+
+    @Override
+    public long transferFrom(FileChannel file, long position, long count) throws IOException {
+        drain();
+        return file.transferTo(position, count, channel);
+    }
+
+    /**
+     * Отмечает конец команды: при политике {@link FlushPolicy#EACH_COMMAND} сбрасывает буфер.
+     */
+    public void commandFinished() throws IOException {
+        if (policy == FlushPolicy.EACH_COMMAND) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /** Сбрасывает буфер; сам канал (stdout) не закрывается */
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+}
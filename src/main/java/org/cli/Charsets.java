@@ -0,0 +1,50 @@
+package org.cli;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+
+/**
+ * Кодировка, в которой команды декодируют текст и кодируют свой вывод.
+ * Задаётся переменной окружения процесса {@code CLI_CHARSET} (или системным свойством {@code cli.charset});
+ * по умолчанию — кодировка платформы. Данные между стадиями пайплайна передаются байтами и декодируются
+ * только там, где нужны символы (регулярные выражения grep), поэтому кодировка на них не влияет.
+ */
+public final class Charsets {
+    private static final Charset CONFIGURED = resolve(System.getProperty("cli.charset", System.getenv("CLI_CHARSET")));
+
+    private Charsets() {
+    }
+
+    /** Настроенная кодировка */
+    public static Charset configured() {
+        return CONFIGURED;
+    }
+
+    /**
+     * Возвращает кодировку по имени.
+     *
+     * @return кодировка или кодировка платформы, если имя пустое или неизвестное
+     */
+    static Charset resolve(String name) {
+        if (name == null || name.isBlank()) {
+            return Charset.defaultCharset();
+        }
+        try {
+            return Charset.forName(name.trim());
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            System.err.println("cli: unsupported charset " + name + ", using " + Charset.defaultCharset());
+            return Charset.defaultCharset();
+        }
+    }
+
+    /**
+     * Совпадает ли кодировка с ASCII на байтах 0–127, так что ASCII-текст можно сравнивать и декодировать
+     * побайтово.
+     */
+    public static boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,143 @@
+package org.cli;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Поиск исполняемых файлов внешних команд по PATH из {@link Environment} с кэшированием найденных путей,
+ * как `hash` в bash. Кэш сбрасывается сам, когда меняется значение PATH.
+ * Не найденные команды не кэшируются, чтобы установленная позже программа сразу находилась.
+ */
+public class CommandResolver {
+    private static final boolean WINDOWS = System.getProperty("os.name").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private final Environment environment;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile String cachedPath;
+
+    public CommandResolver(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Находит исполняемый файл команды.
+     *
+     * @param name имя команды
+     * @return абсолютный путь или null, если команда задана путем или не найдена в PATH
+     */
+    public Path resolve(String name) {
+        if (name.isEmpty() || name.indexOf('/') >= 0 || name.indexOf(File.separatorChar) >= 0) {
+            return null;
+        }
+        String path = searchPath();
+        if (!path.equals(cachedPath)) {
+            entries.clear();
+            cachedPath = path;
+        }
+        Entry entry = entries.get(name);
+        if (entry != null) {
+            hits.incrementAndGet();
+            entry.hits.incrementAndGet();
+            return entry.path;
+        }
+        misses.incrementAndGet();
+        Path found = search(name, path);
+        if (found != null) {
+            entries.put(name, new Entry(found));
+        }
+        return found;
+    }
+
+    /**
+     * Забывает путь команды, например, если файл по нему перестал запускаться.
+     */
+    public void forget(String name) {
+        entries.remove(name);
+    }
+
+    /**
+     * Очищает кэш и счетчики (`hash -r`).
+     */
+    public void clear() {
+        entries.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /** Число обращений, обслуженных из кэша */
+    public long hits() {
+        return hits.get();
+    }
+
+    /** Число обращений, потребовавших поиска по PATH */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Возвращает строки таблицы кэша, отсортированные по имени команды: число обращений и путь.
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        new TreeMap<>(entries).forEach((name, entry) ->
+                lines.add(String.format("%4d\t%s", entry.hits.get(), entry.path)));
+        return lines;
+    }
+
+    private String searchPath() {
+        Map<String, String> variables = environment.getVariables();
+        String path = variables.get("PATH");
+        if (path == null && WINDOWS) {
+            path = variables.get("Path");
+        }
+        return path == null ? "" : path;
+    }
+
+    private Path search(String name, String path) {
+        List<String> candidates = new ArrayList<>();
+        candidates.add(name);
+        if (WINDOWS) {
+            String extensions = System.getenv().getOrDefault("PATHEXT", ".COM;.EXE;.BAT;.CMD");
+            for (String extension : extensions.split(";")) {
+                if (!extension.isEmpty()) {
+                    candidates.add(name + extension);
+                }
+            }
+        }
+        for (String directory : path.split(File.pathSeparator, -1)) {
+            for (String candidate : candidates) {
+                try {
+                    Path file = Paths.get(directory.isEmpty() ? "." : directory, candidate);
+                    if (Files.isRegularFile(file) && Files.isExecutable(file)) {
+                        return file.toAbsolutePath();
+                    }
+                } catch (InvalidPathException ignored) {
+                    // некорректный элемент PATH пропускается, как в shell
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Найденный путь и число обращений к нему */
+    private static final class Entry {
+        final Path path;
+        final AtomicLong hits = new AtomicLong();
+
+        Entry(Path path) {
+            this.path = path;
+        }
+    }
+}
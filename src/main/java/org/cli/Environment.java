@@ -2,15 +2,23 @@ package org.cli;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Класс для управления переменными окружения CLI.
+ * Переменные хранятся в неизменяемой таблице, которая при изменении заменяется новой версией (copy-on-write).
+ * Чтение не требует блокировок и безопасно из параллельно работающих стадий пайплайна,
+ * снимок всех переменных и копия окружения создаются за O(1), а изменение публикуется атомарно.
  */
 public class Environment {
-    private final Map<String, String> variables;
+    private final AtomicReference<Map<String, String>> variables;
 
     public Environment() {
-        this.variables = new HashMap<>(System.getenv());
+        this(Map.copyOf(System.getenv()));
+    }
+
+    private Environment(Map<String, String> variables) {
+        this.variables = new AtomicReference<>(variables);
     }
 
     /**
@@ -20,7 +28,16 @@ public class Environment {
      * @return значение переменной или пустая строка, если переменная отсутствует
      */
     public String getVariable(String name) {
-        return variables.getOrDefault(name, "\"\"");
+        return variables.get().getOrDefault(name, "\"\"");
+    }
+
+    /**
+     * Проверяет, задана ли переменная окружения.
+     *
+     * @param name имя переменной
+     */
+    public boolean hasVariable(String name) {
+        return variables.get().containsKey(name);
     }
 
     /**
@@ -30,13 +47,26 @@ public class Environment {
      * @param value значение переменной
      */
     public void setVariable(String name, String value) {
-        variables.put(name, value);
+        variables.updateAndGet(current -> {
+            Map<String, String> next = new HashMap<>(current);
+            next.put(name, value);
+            return Map.copyOf(next);
+        });
     }
 
     /**
-     * Возвращает копию всех переменных окружения.
+     * Возвращает неизменяемый снимок всех переменных окружения.
+     * Снимок не меняется при последующих изменениях окружения.
      */
     public Map<String, String> getVariables() {
-        return new HashMap<>(variables);
+        return variables.get();
+    }
+
+    /**
+     * Создаёт независимую копию окружения, например, для подоболочки или фонового задания.
+     * Копия разделяет текущую таблицу переменных, пока одна из сторон её не изменит.
+     */
+    public Environment fork() {
+        return new Environment(variables.get());
     }
 }
@@ -1,198 +1,479 @@
 package org.cli;
 
-import com.beust.jcommander.JCommander;
-import com.beust.jcommander.Parameter;
-import com.beust.jcommander.ParameterException;
-
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 
 /**
  * Класс, выполняющий команды CLI.
+ * Команды читают входные данные из потока и пишут результат в выходной поток по мере обработки,
+ * не накапливая весь вывод в памяти.
  */
 public class Executor {
+    private static final long MAP_CHUNK_SIZE = 64L * 1024 * 1024;
+    private static final int PROCESS_BUFFER_SIZE = 256 * 1024;
+
     private final Environment environment;
-    private final GrepHandler grepHandler;
+    private volatile GrepHandler grepHandler;
+    private final CommandResolver commandResolver;
+    private final ResultCache resultCache = new ResultCache();
+    private final WcHandler wcHandler = new WcHandler();
+    private final SortHandler sortHandler = new SortHandler();
+    private final HeadHandler headHandler = new HeadHandler();
+    private final JobControl jobControl = new JobControl();
+    private final ParallelHandler parallelHandler;
+    private final Charset charset = Charsets.configured();
 
     public Executor(Environment environment) {
         this.environment = environment;
-        this.grepHandler = new GrepHandler(environment);
+        this.commandResolver = new CommandResolver(environment);
+        this.parallelHandler = new ParallelHandler(environment, this);
     }
 
     /**
-     * Выполняет переданную команду.
+     * Выполняет переданную команду, накапливая её вывод в строку.
+     * Удобно для коротких команд и тестов; для больших данных используйте потоковый вариант.
      *
      * @param command команда для выполнения
      * @param input входные данные для команды (может быть null)
      * @return вывод команды
      */
     public String execute(Command command, String input) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        InputStream inputStream = input == null ? null : new ByteArrayInputStream(input.getBytes(charset));
+        try {
+            execute(command, inputStream, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toString(charset);
+    }
+
+    /**
+     * Выполняет переданную команду в потоковом режиме.
+     *
+     * @param command команда для выполнения
+     * @param input   входной поток команды (null, если команда первая в пайплайне)
+     * @param output  поток, в который пишется вывод команды
+     * @return код возврата команды (0 — успех)
+     * @throws IOException если не удалось записать вывод
+     */
+    public int execute(Command command, InputStream input, OutputStream output) throws IOException {
+        ResultCache.Key key = input == null ? resultCache.keyFor(command) : null;
+        if (key != null) {
+            return executeCached(key, command, output);
+        }
         return switch (command.getName()) {
-            case "echo" -> executeEcho(command, input);
-            case "cat" -> executeCat(command, input);
-            case "wc" -> executeWc(command, input);
-            case "pwd" -> executePwd();
-            case "exit" -> {
-                System.exit(0);
-                yield "";
-            }
-            case "set" -> executeSet(command, input);
-            case "grep" -> executeGrep(command, input);
-            default -> executeExternal(command, input);
+            case "echo" -> executeEcho(command, output);
+            case "cat" -> executeCat(command, input, output);
+            case "wc" -> wcHandler.execute(command.getArguments(), input, output);
+            case "pwd" -> executePwd(output);
+            case "exit" -> throw new ExitException(command.getArguments());
+            case "set" -> executeSet(command, output);
+            case "grep" -> grepHandler().execute(command.getArguments(), input, output);
+            case "hash" -> executeHash(command, output);
+            case "cache" -> executeCache(command, output);
+            case "head" -> headHandler.execute(command.getArguments(), input, output);
+            case "sort" -> sortHandler.execute(command.getArguments(), input, output);
+            case "parallel" -> parallelHandler.execute(command.getArguments(), input, output);
+            case "jobs" -> jobControl.list(output);
+            case "wait" -> jobControl.await(command.getArguments(), output);
+            case "fg" -> jobControl.foreground(command.getArguments(), output);
+            case "kill" -> isJobKill(command)
+                    ? jobControl.kill(command.getArguments(), output)
+                    : executeExternal(command, input, output);
+            default -> executeExternal(command, input, output);
         };
     }
 
     /**
-     * Реализация команды `echo`.
-     * Выводит аргументы команды в стандартный вывод.
+     * Создаёт исполнитель для фонового задания с копией окружения: `set` в задании не меняет
+     * переменные сессии, а сессия — переменные уже запущенного задания.
      */
-    private String executeEcho(Command command, String input) {
-        List<String> args = command.getArguments();
-        for (int i = 0; i < args.size(); i++) {
-            if (args.get(i).startsWith("$")) {
-                String varName = args.get(i).substring(1);
-                args.set(i, environment.getVariable(varName));
+    public Executor fork() {
+        return new Executor(environment.fork());
+    }
+
+    /**
+     * Фоновые задания, запущенные через `&`.
+     */
+    public JobControl jobs() {
+        return jobControl;
+    }
+
+    /** `kill %N` прерывает фоновые задания; `kill` с номерами процессов выполняется внешней командой */
+    private static boolean isJobKill(Command command) {
+        return !command.getArguments().isEmpty()
+                && command.getArguments().stream().allMatch(argument -> argument.startsWith("%"));
+    }
+
+    /**
+     * Возвращает обработчик grep, создавая его при первом использовании: вместе с ним загружаются
+     * JCommander и классы поиска, которые не нужны командам без grep и только замедляли бы запуск.
+     */
+    private GrepHandler grepHandler() {
+        GrepHandler handler = grepHandler;
+        if (handler == null) {
+            synchronized (this) {
+                handler = grepHandler;
+                if (handler == null) {
+                    handler = new GrepHandler(environment);
+                    grepHandler = handler;
+                }
             }
         }
-        return String.join(" ", args);
+        return handler;
+    }
+
+    /**
+     * Выполняет команду без входа через кэш результатов: запомненный вывод пишется сразу,
+     * иначе команда выполняется, а её вывод запоминается.
+     */
+    private int executeCached(ResultCache.Key key, Command command, OutputStream output) throws IOException {
+        ResultCache.Result cached = resultCache.get(key);
+        if (cached != null) {
+            output.write(cached.output());
+            return cached.status();
+        }
+        ResultCache.Recorder recorder = resultCache.record(key, output);
+        int status = switch (command.getName()) {
+            case "cat" -> executeCat(command, null, recorder);
+            case "wc" -> wcHandler.execute(command.getArguments(), null, recorder);
+            default -> grepHandler().execute(command.getArguments(), null, recorder);
+        };
+        recorder.commit(status);
+        return status;
+    }
+
+    /**
+     * Реализация команды `cache`.
+     * `cache on` и `cache off` включают и выключают кэш результатов `cat`, `wc` и `grep` по файлам,
+     * `cache stats` выводит его счётчики, `cache clear` очищает его.
+     */
+    private int executeCache(Command command, OutputStream output) throws IOException {
+        String action = command.getArguments().isEmpty() ? "stats" : command.getArguments().get(0);
+        switch (action) {
+            case "on" -> resultCache.setEnabled(true);
+            case "off" -> {
+                resultCache.setEnabled(false);
+                resultCache.clear();
+            }
+            case "clear" -> resultCache.clear();
+            case "stats" -> {
+                LruCache.Stats stats = resultCache.stats();
+                write(output, "enabled: " + (resultCache.isEnabled() ? "on" : "off")
+                        + "\nentries: " + stats.size()
+                        + "\nbytes: " + resultCache.bytes()
+                        + "\nhits: " + stats.hits()
+                        + "\nmisses: " + stats.misses() + "\n");
+            }
+            default -> {
+                write(output, "cache: unknown action '" + action + "'. Use: cache on|off|stats|clear\n");
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Реализация команды `echo`.
+     * Выводит аргументы команды как есть: переменные уже подставлены парсером с учётом кавычек.
+     */
+    private int executeEcho(Command command, OutputStream output) throws IOException {
+        write(output, String.join(" ", command.getArguments()));
+        return 0;
     }
 
     /**
      * Реализация команды `cat`.
      * Выводит содержимое указанного файла (или файлов).
      */
-    private String executeCat(Command command, String input) {
+    private int executeCat(Command command, InputStream input, OutputStream output) throws IOException {
         if (input != null) {
-            return input;
+            input.transferTo(output);
+            return 0;
         }
 
         if (command.getArguments().isEmpty()) {
-            return "cat: missing file parameter";
+            write(output, "cat: missing file parameter");
+            return 1;
         }
 
-        StringBuilder output = new StringBuilder();
+        int status = 0;
         for (String fileName : command.getArguments()) {
+            FileChannel file;
             try {
-                output.append(new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(fileName)))).append("\n");
+                file = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
             } catch (IOException e) {
-                output.append("cat: ").append(fileName).append(": No such file\n");
+                write(output, "cat: " + fileName + ": No such file\n");
+                status = 1;
+                continue;
+            }
+            try (file) {
+                copyFile(file, output);
             }
+            output.write('\n');
         }
-        return output.toString();
+        return status;
     }
 
     /**
-     * Реализация команды wc.
-     * Выводит количество строк, слов, байтов в файле и название самого файла.
+     * Копирует файл в вывод без промежуточных копий в куче.
+     * В файл или stdout данные передаются через {@link FileChannel#transferTo} (sendfile),
+     * в канал пайплайна — отображёнными в память участками файла.
      */
-    private String executeWc(Command command, String input) {
-        if (input != null) {
-            String[] lines = input.split("\n");
-            String[] words = input.split("\\s+");
-            return lines.length + " " + words.length + " " + input.length();
-        }
-
-        if (command.getArguments().isEmpty()) {
-            return "wc: missing file parameter";
+    private static void copyFile(FileChannel file, OutputStream output) throws IOException {
+        long size = file.size();
+        if (output instanceof FileOutputStream stream) {
+            FileChannel target = stream.getChannel();
+            transfer(size, (position, count) -> file.transferTo(position, count, target));
+        } else if (output instanceof FileTransferTarget target) {
+            transfer(size, (position, count) -> target.transferFrom(file, position, count));
+        } else if (output instanceof WritableByteChannel channel) {
+            for (long position = 0; position < size; position += MAP_CHUNK_SIZE) {
+                MappedByteBuffer slice = file.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAP_CHUNK_SIZE, size - position));
+                while (slice.hasRemaining()) {
+                    channel.write(slice);
+                }
+            }
+        } else {
+            Channels.newInputStream(file).transferTo(output);
         }
+    }
 
-        StringBuilder output = new StringBuilder();
-        for (String fileName : command.getArguments()) {
-            try {
-                String content = new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(fileName)));
-                String[] lines = content.split("\n");
-                String[] words = content.split("\\s+");
-                output.append(lines.length).append(" ").append(words.length).append(" ").append(content.length()).append(" ").append(fileName).append("\n");
-            } catch (IOException e) {
-                output.append("wc: ").append(fileName).append(": No such file\n");
+    /** Повторяет передачу участков файла, пока он не передан целиком или передача не остановилась */
+    private static void transfer(long size, Transfer transfer) throws IOException {
+        long position = 0;
+        while (position < size) {
+            long transferred = transfer.apply(position, size - position);
+            if (transferred <= 0) {
+                break;
             }
+            position += transferred;
         }
-        return output.toString();
+    }
+
+    @FunctionalInterface
+    private interface Transfer {
+        long apply(long position, long count) throws IOException;
     }
 
     /**
      * Реализация команды `pwd`.
      * Выводит текущую директорию.
      */
-    private String executePwd() {
-        return System.getProperty("user.dir");
+    private int executePwd(OutputStream output) throws IOException {
+        write(output, System.getProperty("user.dir"));
+        return 0;
+    }
+
+    /**
+     * Реализация команды `hash`.
+     * Без аргументов выводит закэшированные пути внешних команд с числом обращений и общую статистику кэша,
+     * с `-r` очищает кэш, с именами команд ищет и запоминает их пути.
+     */
+    private int executeHash(Command command, OutputStream output) throws IOException {
+        List<String> args = command.getArguments();
+        if (args.isEmpty()) {
+            List<String> lines = commandResolver.describe();
+            StringBuilder text = new StringBuilder();
+            if (lines.isEmpty()) {
+                text.append("hash: hash table empty\n");
+            } else {
+                text.append("hits\tcommand\n");
+                lines.forEach(line -> text.append(line).append('\n'));
+            }
+            text.append("hits: ").append(commandResolver.hits())
+                    .append(", misses: ").append(commandResolver.misses()).append('\n');
+            write(output, text.toString());
+            return 0;
+        }
+        if (args.equals(List.of("-r"))) {
+            commandResolver.clear();
+            return 0;
+        }
+        int status = 0;
+        for (String name : args) {
+            if (name.startsWith("-")) {
+                write(output, "hash: " + name + ": invalid option\n");
+                return 2;
+            }
+            if (commandResolver.resolve(name) == null) {
+                write(output, "hash: " + name + ": not found\n");
+                status = 1;
+            }
+        }
+        return status;
     }
 
     /**
      * Запускает внешнюю команду через `ProcessBuilder`.
+     * Исполняемый файл ищется по PATH окружения CLI один раз и затем берется из {@link CommandResolver}.
+     * Вход передаётся процессу в отдельном потоке одновременно с чтением его вывода, поэтому процесс,
+     * пишущий раньше, чем дочитал вход (как `sort` или `awk` на больших данных), не блокирует обмен.
+     * Вывод пересылается дальше по мере появления, не накапливаясь в памяти. Чтение вывода тоже идёт в
+     * отдельном потоке, а поток стадии только ждёт, поэтому прерывание стадии (отмена пайплайна, `kill`
+     * фонового задания) сразу уничтожает процесс, даже если тот ничего не пишет.
      */
-    private String executeExternal(Command command, String input) {
+    private int executeExternal(Command command, InputStream input, OutputStream output) throws IOException {
+        List<String> fullCommand = command.getFullCommand();
+        Path executable = commandResolver.resolve(command.getName());
+        if (executable != null) {
+            fullCommand.set(0, executable.toString());
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder(fullCommand);
+        processBuilder.redirectErrorStream(true);
+        Process process;
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(command.getFullCommand());
-            processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
-
-            if (input != null) {
-                try (OutputStream os = process.getOutputStream()) {
-                    os.write(input.getBytes());
-                    os.flush();
-                }
-            }
+            process = processBuilder.start();
+        } catch (IOException e) {
+            commandResolver.forget(command.getName());
+            write(output, "Error while executing command: " + e.getMessage());
+            return 127;
+        }
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Future<?> feeder = StageExecutors.shared().submit(() -> {
+            feedProcess(input, process.getOutputStream());
+            return null;
+        });
+        Future<?> reader = StageExecutors.shared().submit(() -> {
             try (InputStream is = process.getInputStream()) {
-                byte[] buffer = new byte[1024];
-                int length;
-                while ((length = is.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, length);
+                pump(is, output);
+            }
+            return null;
+        });
+        boolean finished = false;
+        try {
+            reader.get();
+            int status = process.waitFor();
+            feeder.get();
+            finished = true;
+            return status;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + command.getName());
+        } finally {
+            if (!finished) {
+                feeder.cancel(true);
+                process.destroyForcibly();
+                reader.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Передаёт вход процессу, пока он его принимает. Если процесс закрыл свой stdin раньше
+     * (как `head`), остаток входа ему не нужен, и это не считается ошибкой.
+     */
+    private static void feedProcess(InputStream input, OutputStream processInput) throws IOException {
+        try {
+            if (input == null) {
+                return;
+            }
+            byte[] buffer = new byte[PROCESS_BUFFER_SIZE];
+            int length;
+            while ((length = input.read(buffer)) != -1) {
+                try {
+                    processInput.write(buffer, 0, length);
+                } catch (IOException e) {
+                    return;
                 }
             }
+        } finally {
+            try {
+                processInput.close();
+            } catch (IOException ignored) {
+                // процесс уже закрыл свой stdin
+            }
+        }
+    }
 
-            process.waitFor();
-            return outputStream.toString();
-        } catch (IOException | InterruptedException e) {
-            return "Error while executing command: " + e.getMessage();
+    /** Пересылает поток блоками, не дожидаясь его конца */
+    private static void pump(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[PROCESS_BUFFER_SIZE];
+        int length;
+        while ((length = input.read(buffer)) != -1) {
+            output.write(buffer, 0, length);
         }
     }
 
-    private String executeSet(Command command, String input) {
+    private int executeSet(Command command, OutputStream output) throws IOException {
         if (command.getArguments().isEmpty()) {
-            return "set: missing variable name or value";
+            write(output, "set: missing variable name or value");
+            return 1;
         }
         String arg = command.getArguments().get(0);
 
         String[] parts = arg.split("=", 2);
         if (parts.length < 2) {
-            return "set: invalid syntax. Use: set VAR_NAME=value";
+            write(output, "set: invalid syntax. Use: set VAR_NAME=value");
+            return 1;
         }
 
         String varName = parts[0];
         String varValue = parts[1];
 
         environment.setVariable(varName, varValue);
-        return "";
+        return 0;
+    }
+
+    private void write(OutputStream output, String text) throws IOException {
+        output.write(text.getBytes(charset));
     }
 
     /**
-     * Реализация команды `grep`.
-     * Ищет строки, соответствующие заданному шаблону.
+     * Команда `exit`, выполненная не на верхнем уровне строки (в пайплайне, под `time`, в `parallel`).
+     * Исполнитель не завершает процесс сам: исключение доходит до {@link Main}, который, как и для `exit`
+     * на верхнем уровне, сбрасывает буферизованный вывод, прерывает фоновые задания и завершает работу.
      */
-    private String executeGrep(Command command, String input) {
-        GrepParameters params = new GrepParameters();
-        JCommander jc = JCommander.newBuilder()
-                .addObject(params)
-                .build();
+    public static class ExitException extends RuntimeException {
+        private final List<String> arguments;
 
-        try {
-            jc.parse(command.getArguments().toArray(new String[0]));
-            return grepHandler.execute(params, input);
-        } catch (ParameterException e) {
-            return "grep: " + e.getMessage();
+        public ExitException(List<String> arguments) {
+            super("exit", null, false, false);
+            this.arguments = List.copyOf(arguments);
+        }
+
+        /** Аргументы команды `exit` */
+        public List<String> arguments() {
+            return arguments;
+        }
+
+        /**
+         * Код завершения: число из аргумента, {@code previous} без аргумента или 2, если аргумент не число.
+         */
+        public int status(int previous) {
+            if (arguments.isEmpty()) {
+                return previous;
+            }
+            try {
+                return Integer.parseInt(arguments.get(0));
+            } catch (NumberFormatException e) {
+                return 2;
+            }
         }
     }
 }
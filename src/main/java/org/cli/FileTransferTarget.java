@@ -0,0 +1,17 @@
+package org.cli;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Вывод, в который можно передать участок файла средствами ОС ({@link FileChannel#transferTo}),
+ * не копируя данные через кучу.
+ */
+public interface FileTransferTarget {
+    /**
+     * Передаёт участок файла в вывод. Буферизованные ранее данные записываются до него.
+     *
+     * @return число переданных байт
+     */
+    long transferFrom(FileChannel file, long position, long count) throws IOException;
+}
@@ -1,62 +1,344 @@
 package org.cli;
 
+import com.beust.jcommander.ParameterException;
+
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 import java.util.regex.*;
 
 /**
  * Обработчик команды grep с поддержкой regex, регистронезависимости и контекста.
+ * Вход читается построчно, поэтому в памяти держится только текущая строка.
  */
 public class GrepHandler {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int CACHE_SIZE = 256;
+    private static final int SPILL_THRESHOLD = 1024 * 1024;
+    private static final byte[] GROUP_SEPARATOR = {'-', '-', '\n'};
+
     private final Environment environment;
+    private final Charset charset = Charsets.configured();
+    private final ForkJoinPool filePool = ForkJoinPool.commonPool();
+    private final ParallelGrep parallelGrep = new ParallelGrep(filePool);
+    private final LruCache<List<String>, GrepParameters> parameterCache = new LruCache<>(CACHE_SIZE);
+    private final LruCache<PatternKey, Pattern> patternCache = new LruCache<>(CACHE_SIZE);
 
     public GrepHandler(Environment environment) {
         this.environment = environment;
     }
 
+    /**
+     * Разбирает аргументы grep и выполняет поиск. Результаты разбора одинаковых аргументов кэшируются.
+     *
+     * @return 0, если найдено хотя бы одно совпадение, 1 — если совпадений нет, 2 — при ошибке
+     */
+    public int execute(List<String> arguments, InputStream input, OutputStream output) throws IOException {
+        GrepParameters params;
+        try {
+            params = parameterCache.get(List.copyOf(arguments), GrepParameters::parse);
+        } catch (ParameterException e) {
+            return error(output, e.getMessage());
+        }
+        return execute(params, input, output);
+    }
+
     /**
      * Выполняет поиск по шаблону во входных данных или файле.
+     *
+     * @return 0, если найдено хотя бы одно совпадение, 1 — если совпадений нет, 2 — при ошибке
      */
-    public String execute(GrepParameters params, String input) {
+    public int execute(GrepParameters params, InputStream input, OutputStream output) throws IOException {
+        Pattern pattern;
         try {
             validateParameters(params, input);
-            String content = getContent(params, input);
-            Pattern pattern = compilePattern(params);
-
-            return searchMatches(content, pattern, params.getAfterContext());
-        } catch (IOException e) {
-            return "grep: " + e.getMessage();
+            pattern = compilePattern(params);
         } catch (PatternSyntaxException e) {
-            return "grep: invalid pattern: " + e.getMessage();
+            return error(output, "invalid pattern: " + e.getMessage());
         } catch (IllegalArgumentException e) {
-            return "grep: " + e.getMessage();
+            return error(output, e.getMessage());
+        }
+
+        if (input != null) {
+            return search(input, output, params, pattern, Source.STDIN, null) > 0 ? 0 : 1;
+        }
+
+        List<Path> files;
+        try {
+            files = collectFiles(params);
+        } catch (IOException e) {
+            return error(output, e.getMessage());
+        }
+        if (files.size() == 1 && !params.isRecursive()) {
+            return searchSingleFile(files.get(0), params, pattern, output);
+        }
+        return searchFiles(files, params, pattern, output);
+    }
+
+    /** Ищет в одном файле; имя файла в выводе не указывается */
+    private int searchSingleFile(Path file, GrepParameters params, Pattern pattern, OutputStream output)
+            throws IOException {
+        InputStream content;
+        try {
+            content = open(file);
+        } catch (IOException e) {
+            return error(output, describe(file, e));
+        }
+        if (canSearchInParallel(params)) {
+            content.close();
+            return searchFileInParallel(file, params, pattern, output);
+        }
+        return search(content, output, params, pattern, new Source(file.toString(), false), null) > 0 ? 0 : 1;
+    }
+
+    /**
+     * Параллельный поиск поддерживает вывод строк с контекстом после совпадения и подсчет совпадений;
+     * остальные режимы выполняются последовательно.
+     */
+    private static boolean canSearchInParallel(GrepParameters params) {
+        return params.isParallel() && params.getBeforeContext() == 0 && params.getMaxCount() < 0
+                && (params.isCount() || params.isPrintingLines());
+    }
+
+    /** Ищет в файле параллельно по сегментам */
+    private int searchFileInParallel(Path path, GrepParameters params, Pattern pattern, OutputStream output)
+            throws IOException {
+        FileChannel file;
+        try {
+            file = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return error(output, describe(path, e));
+        }
+        try (file) {
+            if (params.isCount()) {
+                long count = parallelGrep.count(file, () -> createMatcher(params, pattern));
+                output.write((count + "\n").getBytes(charset));
+                return count > 0 ? 0 : 1;
+            }
+            return parallelGrep.search(file, () -> createMatcher(params, pattern), params.getAfterContext(),
+                    params.isContextRequested(), output) ? 0 : 1;
+        }
+    }
+
+    /**
+     * Ищет в нескольких файлах параллельно в {@link ForkJoinPool}. Одновременно обрабатывается ограниченное
+     * число файлов, результат каждого копится в {@link SpillBuffer} и выводится в порядке списка файлов.
+     * С -q поиск во всех файлах прекращается после первого совпадения, а если вывод закрыт (например, `head`
+     * получил свои строки), незавершённые поиски останавливаются и их результаты удаляются.
+     */
+    private int searchFiles(List<Path> files, GrepParameters params, Pattern pattern, OutputStream output)
+            throws IOException {
+        int window = Math.max(2, filePool.getParallelism() * 2);
+        Deque<ForkJoinTask<FileResult>> inFlight = new ArrayDeque<>();
+        Iterator<Path> pending = files.iterator();
+        AtomicBoolean stop = new AtomicBoolean();
+        boolean separateFiles = params.isPrintingLines() && params.isContextRequested();
+        boolean found = false;
+        boolean failed = false;
+        try {
+            while (pending.hasNext() || !inFlight.isEmpty()) {
+                while (inFlight.size() < window && pending.hasNext()) {
+                    Path file = pending.next();
+                    inFlight.add(filePool.submit(() -> searchFile(file, params, pattern, stop)));
+                }
+                FileResult result = joinFile(inFlight.removeFirst());
+                try (SpillBuffer buffer = result.output()) {
+                    if (separateFiles && found && result.found()) {
+                        output.write(GROUP_SEPARATOR);
+                    }
+                    buffer.moveTo(output);
+                }
+                found |= result.found();
+                failed |= result.failed();
+                if (found && params.isQuiet()) {
+                    stop.set(true);
+                    return 0;
+                }
+            }
+        } finally {
+            stop.set(true);
+            for (ForkJoinTask<FileResult> task : inFlight) {
+                // cancel у ForkJoinTask не прерывает уже начатый поиск, поэтому каждую задачу нужно дождаться
+                // и закрыть её буфер; с поднятым stop поиск заканчивается на следующей строке
+                try {
+                    task.join().output().close();
+                } catch (RuntimeException e) {
+                    // результат уже не нужен
+                }
+            }
         }
+        return failed ? 2 : found ? 0 : 1;
+    }
+
+    private FileResult searchFile(Path file, GrepParameters params, Pattern pattern, AtomicBoolean stop) {
+        SpillBuffer buffer = new SpillBuffer(SPILL_THRESHOLD);
+        try {
+            try {
+                long matches = search(open(file), buffer, params, pattern, new Source(file.toString(), true), stop);
+                return new FileResult(matches > 0, false, buffer);
+            } catch (IOException e) {
+                buffer.write(("grep: " + describe(file, e) + "\n").getBytes(charset));
+                return new FileResult(false, true, buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        if (Files.isDirectory(file)) {
+            throw new IOException("Is a directory");
+        }
+        return Files.newInputStream(file);
+    }
+
+    private static FileResult joinFile(ForkJoinTask<FileResult> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Ищет в потоке и закрывает его.
+     *
+     * @param source имя источника для вывода
+     * @param stop   флаг досрочной остановки поиска или null
+     * @return число совпавших строк
+     */
+    private long search(InputStream content, OutputStream output, GrepParameters params, Pattern pattern,
+                        Source source, AtomicBoolean stop) throws IOException {
+        try (content) {
+            OutputStream buffered = new BufferedOutputStream(output, BUFFER_SIZE);
+            long matches = searchMatches(new LineReader(content), buffered, createMatcher(params, pattern), params,
+                    source, stop);
+            buffered.flush();
+            return matches;
+        }
+    }
+
+    private int error(OutputStream output, String message) throws IOException {
+        output.write(("grep: " + message).getBytes(charset));
+        return 2;
+    }
+
+    private static String describe(Path file, IOException e) {
+        if (e instanceof NoSuchFileException) {
+            return file + ": No such file or directory";
+        }
+        return file + ": " + e.getMessage();
     }
 
     /** Проверяет обязательные параметры */
-    private void validateParameters(GrepParameters params, String input) {
+    private void validateParameters(GrepParameters params, InputStream input) {
         if (params.getPattern() == null) {
             throw new IllegalArgumentException("missing pattern");
         }
-        if (input == null && params.getFileName() == null) {
+        if (input == null && params.getFileName() == null && !params.isRecursive()) {
             throw new IllegalArgumentException("missing file parameter");
         }
     }
 
-    /** Получает содержимое для поиска (из input или файла) */
-    private String getContent(GrepParameters params, String input) throws IOException {
-        if (input != null) {
-            return input;
+    /**
+     * Составляет список файлов для поиска: файлы из аргументов и, с -r, все обычные файлы в каталогах
+     * в отсортированном порядке. Фильтры --include и --exclude применяются к имени файла.
+     * Без аргументов с -r ищет в текущем каталоге.
+     */
+    private List<Path> collectFiles(GrepParameters params) throws IOException {
+        List<String> names = params.getFileNames();
+        if (names.isEmpty()) {
+            names = List.of("");
+        }
+        Predicate<Path> filter = fileNameFilter(params);
+        List<Path> files = new ArrayList<>();
+        for (String name : names) {
+            Path path = Paths.get(name);
+            if (params.isRecursive() && Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).filter(filter).sorted().forEach(files::add);
+                }
+            } else if (filter.test(path)) {
+                files.add(path);
+            }
         }
-        return new String(Files.readAllBytes(Paths.get(params.getFileName())));
+        return files;
     }
 
-    /** Компилирует regex-шаблон с учетом флагов */
+    private static Predicate<Path> fileNameFilter(GrepParameters params) {
+        List<PathMatcher> includes = globs(params.getIncludes());
+        List<PathMatcher> excludes = globs(params.getExcludes());
+        return path -> {
+            Path name = path.getFileName();
+            if (name == null) {
+                return true;
+            }
+            boolean included = includes.isEmpty() || includes.stream().anyMatch(glob -> glob.matches(name));
+            return included && excludes.stream().noneMatch(glob -> glob.matches(name));
+        };
+    }
+
+    private static List<PathMatcher> globs(List<String> patterns) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String pattern : patterns) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+        }
+        return matchers;
+    }
+
+    /** Компилирует regex-шаблон с учетом флагов или берёт уже скомпилированный из кэша */
     private Pattern compilePattern(GrepParameters params) {
-        String patternStr = preparePatternString(params);
-        int flags = preparePatternFlags(params);
-        return Pattern.compile(patternStr, flags);
+        PatternKey key = new PatternKey(params.getPattern(), params.isWholeWord(), params.isIgnoreCase());
+        return patternCache.get(key, k -> Pattern.compile(preparePatternString(params), preparePatternFlags(params)));
+    }
+
+    /** Счётчики кэша скомпилированных шаблонов */
+    public LruCache.Stats patternCacheStats() {
+        return patternCache.stats();
+    }
+
+    /** Счётчики кэша разобранных аргументов */
+    public LruCache.Stats parameterCacheStats() {
+        return parameterCache.stats();
+    }
+
+    /**
+     * Выбирает способ проверки строк: шаблоны без метасимволов ищутся прямо по байтам,
+     * остальные — регулярным выражением по декодированной строке.
+     */
+    private LineMatcher createMatcher(GrepParameters params, Pattern pattern) {
+        LineMatcher regex = new RegexLineMatcher(pattern, charset);
+        String literal = params.getPattern();
+        if (!LiteralLineMatcher.isLiteral(literal) || !Charsets.isAsciiCompatible(charset)
+                || params.isIgnoreCase() && !isAscii(literal)) {
+            return regex;
+        }
+        return new LiteralLineMatcher(literal.getBytes(charset), params.isIgnoreCase(), regex, params.isWholeWord());
+    }
+
+    private static boolean isAscii(String text) {
+        return text.chars().allMatch(c -> c < 0x80);
     }
 
     /** Подготавливает строку паттерна (добавляет границы слов при необходимости) */
@@ -77,44 +359,93 @@ public class GrepHandler {
         return flags;
     }
 
-    /** Ищет совпадения и формирует результат с учетом контекста */
-    private String searchMatches(String content, Pattern pattern, int afterContext) {
-        String[] lines = content.split("\n");
-        StringBuilder result = new StringBuilder();
+    /**
+     * Ищет совпадения и пишет подходящие строки с учетом контекста.
+     * Строки перед совпадением держатся в {@link LineRing}, поэтому память зависит от размера контекста,
+     * а не входа. Если контекст запрошен, несмежные группы строк разделяются "--", как в GNU grep.
+     * Если источник выводится с именем, строки предваряются им: совпавшие через ':', строки контекста через '-'.
+     * Чтение прекращается, как только ответ известен: при -q и -l — на первом совпадении,
+     * при -m — после NUM совпадений и их контекста.
+     *
+     * @return число совпавших строк
+     */
+    private long searchMatches(LineReader reader, OutputStream output, LineMatcher matcher, GrepParameters params,
+                               Source source, AtomicBoolean stop) throws IOException {
+        boolean stopAtFirst = params.isQuiet() || params.isFilesWithMatches();
+        boolean printLines = params.isPrintingLines();
+        boolean separateGroups = printLines && params.isContextRequested();
+        long maxCount = stopAtFirst ? 1 : params.getMaxCount() < 0 ? Long.MAX_VALUE : params.getMaxCount();
+        int afterContext = params.getAfterContext();
+        LineRing before = new LineRing(printLines ? params.getBeforeContext() : 0);
+        byte[] matchPrefix = source.prefixed() ? (source.name() + ":").getBytes(charset) : null;
+        byte[] contextPrefix = source.prefixed() ? (source.name() + "-").getBytes(charset) : null;
+        long matches = 0;
+        long lineNumber = 0;
+        long lastPrinted = -1;
         int linesAfterToPrint = 0;
-        int lastPrintedLine = -1;
-
-        for (int i = 0; i < lines.length; i++) {
-            if (isMatchFound(pattern, lines[i])) {
 
-                if (shouldPrintLine(i, lastPrintedLine)) {
-                    appendLine(result, lines[i]);
-                    lastPrintedLine = i;
+        while (matches < maxCount || linesAfterToPrint > 0) {
+            if (!reader.next() || stop != null && stop.get()) {
+                break;
+            }
+            lineNumber++;
+            if (matches < maxCount && matcher.matches(reader.buffer(), reader.start(), reader.end())) {
+                matches++;
+                if (printLines) {
+                    if (separateGroups && lastPrinted >= 0 && lineNumber - before.size() > lastPrinted + 1) {
+                        output.write(GROUP_SEPARATOR);
+                    }
+                    before.drainTo(output, contextPrefix);
+                    appendLine(output, matchPrefix, reader);
+                    lastPrinted = lineNumber;
+                    linesAfterToPrint = afterContext;
                 }
-                linesAfterToPrint = afterContext;
-            } else if (shouldPrintContextLine(i, lastPrintedLine, linesAfterToPrint)) {
-                appendLine(result, lines[i]);
-                lastPrintedLine = i;
+            } else if (linesAfterToPrint > 0) {
+                appendLine(output, contextPrefix, reader);
+                lastPrinted = lineNumber;
                 linesAfterToPrint--;
+            } else {
+                before.add(reader.buffer(), reader.start(), reader.end());
             }
         }
 
-        return result.toString();
+        if (params.isQuiet()) {
+            return matches;
+        }
+        if (params.isFilesWithMatches()) {
+            if (matches > 0) {
+                output.write((source.name() + "\n").getBytes(charset));
+            }
+        } else if (params.isCount()) {
+            String prefix = source.prefixed() ? source.name() + ":" : "";
+            output.write((prefix + matches + "\n").getBytes(charset));
+        }
+        return matches;
     }
 
-    private boolean isMatchFound(Pattern pattern, String line) {
-        return pattern.matcher(line).find();
+    private void appendLine(OutputStream output, byte[] prefix, LineReader reader) throws IOException {
+        if (prefix != null) {
+            output.write(prefix);
+        }
+        output.write(reader.buffer().array(), reader.start(), reader.end() - reader.start());
+        output.write('\n');
     }
 
-    private boolean shouldPrintLine(int currentLine, int lastPrintedLine) {
-        return currentLine > lastPrintedLine;
+    /**
+     * Источник поиска.
+     *
+     * @param name     имя для -l и префиксов строк
+     * @param prefixed предварять ли строки вывода именем (при поиске в нескольких файлах)
+     */
+    private record Source(String name, boolean prefixed) {
+        static final Source STDIN = new Source("(standard input)", false);
     }
 
-    private boolean shouldPrintContextLine(int currentLine, int lastPrintedLine, int linesAfterToPrint) {
-        return linesAfterToPrint > 0 && shouldPrintLine(currentLine, lastPrintedLine);
+    /** Результат поиска в одном из нескольких файлов */
+    private record FileResult(boolean found, boolean failed, SpillBuffer output) {
     }
 
-    private void appendLine(StringBuilder result, String line) {
-        result.append(line).append("\n");
+    /** Ключ кэша шаблонов: строка шаблона и влияющие на компиляцию флаги */
+    private record PatternKey(String pattern, boolean wholeWord, boolean ignoreCase) {
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,7 @@
 package org.cli;
 
 import com.beust.jcommander.IParameterValidator;
-import com.beust.jcommander.IValueValidator;
+import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 
@@ -10,6 +10,7 @@ import java.util.List;
 
 /**
  * Параметры команды grep для парсинга JCommander.
+ * После разбора объект не изменяется, поэтому его можно кэшировать и разделять между вызовами.
  */
 public class GrepParameters {
     @Parameter(names = {"-w", "--word-regexp"}, description = "Search for whole words only")
@@ -21,11 +22,61 @@ public class GrepParameters {
     @Parameter(names = {"-A", "--after-context"},
             description = "Print NUM lines after match",
             validateWith = PositiveIntegerValidator.class)
-    private int afterContext = 0;
+    private int afterContext = -1;
+
+    @Parameter(names = {"-B", "--before-context"},
+            description = "Print NUM lines before match",
+            validateWith = PositiveIntegerValidator.class)
+    private int beforeContext = -1;
+
+    @Parameter(names = {"-C", "--context"},
+            description = "Print NUM lines before and after match",
+            validateWith = PositiveIntegerValidator.class)
+    private int context = -1;
+
+    @Parameter(names = {"-c", "--count"}, description = "Print only a count of matching lines")
+    private boolean count = false;
+
+    @Parameter(names = {"-l", "--files-with-matches"}, description = "Print only names of files with matches")
+    private boolean filesWithMatches = false;
+
+    @Parameter(names = {"-q", "--quiet", "--silent"}, description = "Print nothing, exit on the first match")
+    private boolean quiet = false;
+
+    @Parameter(names = {"-m", "--max-count"},
+            description = "Stop reading a file after NUM matching lines",
+            validateWith = PositiveIntegerValidator.class)
+    private int maxCount = -1;
+
+    @Parameter(names = {"--parallel"}, description = "Search a single file in parallel segments")
+    private boolean parallel = false;
+
+    @Parameter(names = {"-r", "--recursive"}, description = "Search directories recursively")
+    private boolean recursive = false;
+
+    @Parameter(names = {"--include"}, description = "Search only files whose name matches GLOB")
+    private List<String> includes = new ArrayList<>();
+
+    @Parameter(names = {"--exclude"}, description = "Skip files whose name matches GLOB")
+    private List<String> excludes = new ArrayList<>();
 
     @Parameter(description = "pattern [file...]", required = true)
     private List<String> parameters = new ArrayList<>();
 
+    /**
+     * Разбирает аргументы команды grep.
+     *
+     * @throws ParameterException если аргументы некорректны
+     */
+    public static GrepParameters parse(List<String> arguments) {
+        GrepParameters params = new GrepParameters();
+        JCommander.newBuilder()
+                .addObject(params)
+                .build()
+                .parse(arguments.toArray(new String[0]));
+        return params;
+    }
+
     /** Валидатор для положительных чисел */
     public static class PositiveIntegerValidator implements IParameterValidator {
         @Override
@@ -46,7 +97,21 @@ public class GrepParameters {
     /** Getters **/
     public boolean isWholeWord() { return wholeWord; }
     public boolean isIgnoreCase() { return ignoreCase; }
-    public int getAfterContext() { return afterContext; }
+    public int getAfterContext() { return Math.max(afterContext >= 0 ? afterContext : context, 0); }
+    public int getBeforeContext() { return Math.max(beforeContext >= 0 ? beforeContext : context, 0); }
+    /** Запрошен ли контекст явно (даже нулевой): тогда группы строк разделяются "--", как в GNU grep */
+    public boolean isContextRequested() { return afterContext >= 0 || beforeContext >= 0 || context >= 0; }
+    /** Выводятся ли сами строки, а не только счётчик, имена файлов или статус */
+    public boolean isPrintingLines() { return !count && !filesWithMatches && !quiet; }
+    public boolean isCount() { return count; }
+    public boolean isFilesWithMatches() { return filesWithMatches; }
+    public boolean isQuiet() { return quiet; }
+    public int getMaxCount() { return maxCount; }
+    public boolean isParallel() { return parallel; }
+    public boolean isRecursive() { return recursive; }
+    public List<String> getIncludes() { return includes; }
+    public List<String> getExcludes() { return excludes; }
     public String getPattern() { return parameters.get(0); }
     public String getFileName() { return parameters.size() > 1 ? parameters.get(1) : null; }
+    public List<String> getFileNames() { return parameters.subList(1, parameters.size()); }
 }
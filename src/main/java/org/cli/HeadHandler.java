@@ -0,0 +1,124 @@
+package org.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Обработчик команды `head [-n N | -c N | -N] [FILE...]`: выводит первые N строк (по умолчанию 10) или байт.
+ * Вход читается только до нужного места. В пайплайне после выхода из head его вход закрывается, и
+ * предыдущие стадии получают {@link Pipe.BrokenPipeException} при следующей записи, как от SIGPIPE:
+ * `cat` и `grep` прекращают чтение файлов, а внешние процессы уничтожаются. Поэтому `cat huge.log | head`
+ * работает одинаково быстро на файле любого размера.
+ */
+public class HeadHandler {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_COUNT = 10;
+
+    private final Charset charset = Charsets.configured();
+
+    /**
+     * Выполняет head над входным потоком или файлами из аргументов.
+     */
+    public int execute(List<String> arguments, InputStream input, OutputStream output) throws IOException {
+        long count = DEFAULT_COUNT;
+        boolean bytes = false;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+            if (!argument.startsWith("-") || argument.length() == 1) {
+                files.add(argument);
+                continue;
+            }
+            char option = argument.charAt(1);
+            String value;
+            if (Character.isDigit(option)) {
+                value = argument.substring(1);
+            } else if (option != 'n' && option != 'c') {
+                write(output, "head: invalid option -- '" + option + "'\n");
+                return 1;
+            } else if (argument.length() > 2) {
+                value = argument.substring(2);
+            } else if (i + 1 < arguments.size()) {
+                value = arguments.get(++i);
+            } else {
+                write(output, "head: option requires an argument -- '" + option + "'\n");
+                return 1;
+            }
+            bytes = option == 'c';
+            count = parseCount(value);
+            if (count < 0) {
+                write(output, "head: invalid number of " + (bytes ? "bytes" : "lines") + ": '" + value + "'\n");
+                return 1;
+            }
+        }
+
+        if (files.isEmpty()) {
+            if (input == null) {
+                write(output, "head: missing file parameter");
+                return 1;
+            }
+            copy(input, output, count, bytes);
+            return 0;
+        }
+
+        int status = 0;
+        for (int i = 0; i < files.size(); i++) {
+            String fileName = files.get(i);
+            if (files.size() > 1) {
+                write(output, (i == 0 ? "" : "\n") + "==> " + fileName + " <==\n");
+            }
+            try (InputStream file = Files.newInputStream(Paths.get(fileName))) {
+                copy(file, output, count, bytes);
+            } catch (NoSuchFileException e) {
+                write(output, "head: " + fileName + ": No such file\n");
+                status = 1;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Копирует первые {@code count} строк или байт потока и больше из него не читает.
+     */
+    static void copy(InputStream input, OutputStream output, long count, boolean bytes) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long remaining = count;
+        while (remaining > 0) {
+            int read = input.read(buffer, 0, bytes ? (int) Math.min(buffer.length, remaining) : buffer.length);
+            if (read == -1) {
+                return;
+            }
+            int length = read;
+            if (bytes) {
+                remaining -= read;
+            } else {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n' && --remaining == 0) {
+                        length = i + 1;
+                        break;
+                    }
+                }
+            }
+            output.write(buffer, 0, length);
+        }
+    }
+
+    private static long parseCount(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void write(OutputStream output, String text) throws IOException {
+        output.write(text.getBytes(charset));
+    }
+}
@@ -0,0 +1,287 @@
+package org.cli;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Фоновые задания — пайплайны, запущенные строкой с `&` в конце.
+ * Задания выполняются в ограниченном пуле (по умолчанию не больше потоков, чем ядер), поэтому несколько
+ * независимых поисков идут параллельно, а сессия сразу принимает следующую команду. Вывод задания
+ * собирается в {@link SpillBuffer} (большой вывод уходит во временный файл) и печатается, когда задание
+ * забирают командами `fg` или `wait`. Команда `jobs` показывает состояние заданий, `kill %N` прерывает задание.
+ */
+public class JobControl {
+    /** Код возврата прерванного задания, как у процесса, завершённого SIGTERM */
+    static final int TERMINATED_STATUS = 143;
+    private static final int OUTPUT_MEMORY_LIMIT = 1024 * 1024;
+
+    private final int threads;
+    private final TreeMap<Integer, Job> jobs = new TreeMap<>();
+    private ExecutorService pool;
+
+    public JobControl() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads сколько заданий может выполняться одновременно; остальные ждут в очереди
+     */
+    public JobControl(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Запускает пайплайн в фоне.
+     *
+     * @param line     исходная строка команды, показывается в `jobs`
+     * @param pipeline пайплайн задания
+     * @param executor исполнитель команд
+     * @return номер задания
+     */
+    public synchronized int start(String line, Pipeline pipeline, Executor executor) {
+        if (pool == null) {
+            pool = StageExecutors.newBoundedExecutor("cli-job", threads);
+        }
+        int id = jobs.isEmpty() ? 1 : jobs.lastKey() + 1;
+        Job job = new Job(id, line);
+        jobs.put(id, job);
+        job.future = pool.submit(() -> job.run(pipeline, executor));
+        return id;
+    }
+
+    /**
+     * Реализация команды `jobs`: печатает номер, состояние и строку каждого задания.
+     */
+    public synchronized int list(OutputStream output) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (Job job : jobs.values()) {
+            text.append(String.format("[%d]  %-24s%s%n", job.id, job.state(), job.line));
+        }
+        write(output, text.toString());
+        return 0;
+    }
+
+    /**
+     * Реализация команды `wait [%N...]`: дожидается указанных (без аргументов — всех) заданий
+     * и печатает их вывод.
+     *
+     * @return код возврата последнего задания
+     */
+    public int await(List<String> arguments, OutputStream output) throws IOException {
+        List<Job> targets = new ArrayList<>();
+        synchronized (this) {
+            if (arguments.isEmpty()) {
+                targets.addAll(jobs.values());
+            }
+            for (String argument : arguments) {
+                Job job = find(argument);
+                if (job == null) {
+                    write(output, "wait: " + argument + ": no such job\n");
+                    return 127;
+                }
+                targets.add(job);
+            }
+        }
+        int status = 0;
+        for (Job job : targets) {
+            status = reap(job, output);
+        }
+        return status;
+    }
+
+    /**
+     * Реализация команды `fg [%N]`: дожидается задания (без аргумента — последнего запущенного)
+     * и печатает его вывод.
+     *
+     * @return код возврата задания
+     */
+    public int foreground(List<String> arguments, OutputStream output) throws IOException {
+        Job job;
+        synchronized (this) {
+            if (arguments.isEmpty()) {
+                job = jobs.isEmpty() ? null : jobs.lastEntry().getValue();
+                if (job == null) {
+                    write(output, "fg: no current job\n");
+                    return 1;
+                }
+            } else {
+                job = find(arguments.get(0));
+                if (job == null) {
+                    write(output, "fg: " + arguments.get(0) + ": no such job\n");
+                    return 1;
+                }
+            }
+        }
+        return reap(job, output);
+    }
+
+    /**
+     * Реализация команды `kill %N...`: прерывает задания. Внешние процессы заданий уничтожаются,
+     * задание остаётся в списке с состоянием Terminated, пока его не заберут `wait` или `fg`.
+     */
+    public synchronized int kill(List<String> arguments, OutputStream output) throws IOException {
+        int status = 0;
+        for (String argument : arguments) {
+            Job job = argument.startsWith("%") ? find(argument) : null;
+            if (job == null) {
+                write(output, "kill: " + argument + ": no such job\n");
+                status = 1;
+            } else {
+                job.kill();
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Прерывает все задания, например при завершении интерпретатора, и удаляет их несобранный вывод.
+     */
+    public synchronized void killAll() {
+        jobs.values().forEach(Job::discard);
+        jobs.clear();
+    }
+
+    /**
+     * Ищет задание по номеру вида {@code %N} или {@code N}.
+     */
+    private Job find(String spec) {
+        try {
+            return jobs.get(Integer.parseInt(spec.startsWith("%") ? spec.substring(1) : spec));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Дожидается задания, печатает его вывод и убирает из списка.
+     * Если задание одновременно забирают двое, вывод печатает только первый.
+     */
+    private int reap(Job job, OutputStream output) throws IOException {
+        int status;
+        try {
+            status = job.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for job " + job.id);
+        } catch (ExecutionException e) {
+            status = 1;
+        }
+        boolean removed;
+        synchronized (this) {
+            removed = jobs.remove(job.id, job);
+        }
+        if (removed) {
+            try (SpillBuffer buffer = job.output) {
+                buffer.moveTo(output);
+            }
+        }
+        return status;
+    }
+
+    private static void write(OutputStream output, String text) throws IOException {
+        output.write(text.getBytes(Charsets.configured()));
+    }
+
+    /** Фоновое задание */
+    private static final class Job {
+        private final int id;
+        private final String line;
+        private final SpillBuffer output = new SpillBuffer(OUTPUT_MEMORY_LIMIT);
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+        private volatile Future<?> future;
+        private volatile boolean started;
+        private volatile boolean killed;
+        private boolean discarded;
+
+        Job(int id, String line) {
+            this.id = id;
+            this.line = line;
+        }
+
+        void run(Pipeline pipeline, Executor executor) {
+            started = true;
+            int status = 1;
+            try {
+                LastByteOutputStream tracked = new LastByteOutputStream(output);
+                status = pipeline.execute(executor, tracked);
+                if (!tracked.endsWithNewLine()) {
+                    tracked.write('\n');
+                }
+            } catch (Executor.ExitException e) {
+                // `exit` в задании завершает только задание, как в подоболочке
+                status = e.status(0);
+            } catch (Exception e) {
+                if (!killed) {
+                    try {
+                        write(output, "Error: " + e.getMessage() + "\n");
+                    } catch (IOException ignored) {
+                        // вывод задания недоступен, остаётся только код возврата
+                    }
+                }
+            } finally {
+                // и после Error (например, OutOfMemoryError) задание должно завершиться, иначе wait и fg зависнут
+                result.complete(killed ? TERMINATED_STATUS : status);
+                synchronized (this) {
+                    if (discarded) {
+                        closeOutput();
+                    }
+                }
+            }
+        }
+
+        void kill() {
+            if (result.isDone()) {
+                return;
+            }
+            killed = true;
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(true);
+            }
+            if (!started) {
+                result.complete(TERMINATED_STATUS);
+            }
+        }
+
+        /**
+         * Прерывает задание и закрывает его вывод, удаляя временный файл. Если задание ещё выполняется,
+         * вывод закроет оно само, когда остановится, чтобы не писать в уже удалённый буфер.
+         */
+        void discard() {
+            kill();
+            synchronized (this) {
+                discarded = true;
+                if (result.isDone()) {
+                    closeOutput();
+                }
+            }
+        }
+
+        private void closeOutput() {
+            try {
+                output.close();
+            } catch (IOException ignored) {
+                // временный файл останется, но вывод задания уже никому не нужен
+            }
+        }
+
+        String state() {
+            if (!result.isDone()) {
+                return started ? "Running" : "Queued";
+            }
+            int status = result.join();
+            if (killed) {
+                return "Terminated";
+            }
+            return status == 0 ? "Done" : "Exit " + status;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.cli;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Поток, запоминающий, закончился ли записанный вывод переводом строки.
+ * Остаётся каналом, поэтому команды, пишущие буферами (как `cat` участками отображённого файла),
+ * передают их дальше без копирования в кучу, если нижележащий поток это позволяет.
+ */
+public class LastByteOutputStream extends FilterOutputStream implements WritableByteChannel, FileTransferTarget {
+    private int lastByte = '\n';
+
+    public LastByteOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        lastByte = b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+            out.write(b, off, len);
+            lastByte = b[off + len - 1];
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        if (length > 0) {
+            byte last = src.get(src.limit() - 1);
+            OutputChannels.write(out, src);
+            lastByte = last;
+        }
+        return length;
+    }
+
+    @Override
+    public long transferFrom(FileChannel file, long position, long count) throws IOException {
+        if (!(out instanceof FileTransferTarget target)) {
+            return file.transferTo(position, count, this);
+        }
+        long transferred = target.transferFrom(file, position, count);
+        if (transferred > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            if (file.read(last, position + transferred - 1) == 1) {
+                lastByte = last.get(0);
+            }
+        }
+        return transferred;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    /** Закончился ли вывод переводом строки (пустой вывод считается закончившимся) */
+    public boolean endsWithNewLine() {
+        return lastByte == '\n';
+    }
+
+    /** Начинает отслеживание заново, например, перед следующей командой */
+    public void reset() {
+        lastByte = '\n';
+    }
+}
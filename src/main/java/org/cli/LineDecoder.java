@@ -0,0 +1,68 @@
+package org.cli;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Декодирует строку из байтового буфера в переиспользуемый {@link CharBuffer}.
+ * Некорректные последовательности байт заменяются, а не приводят к ошибке. Не потокобезопасен.
+ * <p>
+ * Для ASCII-совместимых кодировок строки из ASCII-символов (типичный случай для логов и исходников)
+ * переводятся в символы побайтово, без {@link CharsetDecoder}; в ISO-8859-1 так декодируется любой байт.
+ */
+public class LineDecoder {
+    private final CharsetDecoder decoder;
+    private final boolean asciiCompatible;
+    private final boolean latin1;
+    private CharBuffer chars = CharBuffer.allocate(256);
+
+    public LineDecoder(Charset charset) {
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.asciiCompatible = Charsets.isAsciiCompatible(charset);
+        this.latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Декодирует байты [from, to) буфера. Результат действителен до следующего вызова.
+     */
+    public CharSequence decode(ByteBuffer data, int from, int to) {
+        int capacity = (int) Math.ceil((to - from) * (double) decoder.maxCharsPerByte());
+        if (chars.capacity() < capacity) {
+            chars = CharBuffer.allocate(capacity);
+        }
+        chars.clear();
+        if (asciiCompatible && decodeBytes(data, from, to)) {
+            return chars.flip();
+        }
+        chars.clear();
+        decoder.reset();
+        decoder.decode(data.slice(from, to - from), chars, true);
+        decoder.flush(chars);
+        return chars.flip();
+    }
+
+    /**
+     * Переводит байты в символы один к одному.
+     *
+     * @return false, если встретился не-ASCII байт и строку нужно декодировать полностью
+     */
+    private boolean decodeBytes(ByteBuffer data, int from, int to) {
+        char[] target = chars.array();
+        int offset = chars.arrayOffset();
+        for (int i = from; i < to; i++) {
+            byte b = data.get(i);
+            if (b < 0 && !latin1) {
+                return false;
+            }
+            target[offset + i - from] = (char) (b & 0xFF);
+        }
+        chars.position(to - from);
+        return true;
+    }
+}
@@ -0,0 +1,19 @@
+package org.cli;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Проверка одной строки на совпадение с шаблоном grep.
+ * Строка передаётся как участок байтового буфера без перевода строки, поэтому реализация
+ * сама решает, нужно ли её декодировать. Экземпляры не потокобезопасны.
+ */
+public interface LineMatcher {
+
+    /**
+     * @param data буфер со строкой
+     * @param from начало строки (включительно)
+     * @param to   конец строки (исключительно), без символа перевода строки
+     * @return true, если строка содержит совпадение
+     */
+    boolean matches(ByteBuffer data, int from, int to);
+}
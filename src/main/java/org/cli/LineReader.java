@@ -0,0 +1,113 @@
+package org.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Построчное чтение байтового потока без декодирования.
+ * Текущая строка доступна как участок внутреннего буфера и действительна до следующего вызова {@link #next()}.
+ * Буфер растёт только под строки длиннее его текущего размера.
+ */
+public class LineReader {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private byte[] buffer;
+    private ByteBuffer view;
+    private int position;
+    private int limit;
+    private int lineStart;
+    private int lineEnd;
+    private boolean terminated;
+    private boolean eof;
+
+    public LineReader(InputStream input) {
+        this(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    public LineReader(InputStream input, int bufferSize) {
+        this.input = input;
+        this.buffer = new byte[bufferSize];
+        this.view = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Переходит к следующей строке.
+     *
+     * @return false, если поток закончился
+     */
+    public boolean next() throws IOException {
+        int scan = position;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    setLine(position, i, true);
+                    position = i + 1;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (position < limit) {
+                    setLine(position, limit, false);
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            scan = limit - position;
+            fill();
+        }
+    }
+
+    /** Буфер, содержащий текущую строку */
+    public ByteBuffer buffer() {
+        return view;
+    }
+
+    /** Начало текущей строки в буфере */
+    public int start() {
+        return lineStart;
+    }
+
+    /** Конец текущей строки в буфере, без перевода строки */
+    public int end() {
+        return lineEnd;
+    }
+
+    /** Заканчивалась ли текущая строка переводом строки */
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    /** Копия байт текущей строки */
+    public byte[] copyLine() {
+        return Arrays.copyOfRange(buffer, lineStart, lineEnd);
+    }
+
+    private void setLine(int start, int end, boolean terminated) {
+        this.lineStart = start;
+        this.lineEnd = end;
+        this.terminated = terminated;
+    }
+
+    /** Сдвигает непрочитанный остаток в начало буфера и дочитывает поток */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            view = ByteBuffer.wrap(buffer);
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Кольцевой буфер последних строк для контекста перед совпадением (grep -B).
+ * Хранит не больше заданного числа строк; массивы ячеек переиспользуются, поэтому память
+ * зависит только от размера контекста и длины строк, но не от размера входа.
+ */
+public class LineRing {
+    private static final int INITIAL_LINE_SIZE = 128;
+
+    private final byte[][] lines;
+    private final int[] lengths;
+    private int head;
+    private int size;
+
+    /**
+     * @param capacity сколько последних строк хранить
+     */
+    public LineRing(int capacity) {
+        this.lines = new byte[capacity][];
+        this.lengths = new int[capacity];
+    }
+
+    /** Число строк в буфере */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Добавляет копию строки; если буфер полон, самая старая строка вытесняется.
+     */
+    public void add(ByteBuffer buffer, int from, int to) {
+        if (lines.length == 0) {
+            return;
+        }
+        int slot = (head + size) % lines.length;
+        if (size == lines.length) {
+            head = (head + 1) % lines.length;
+        } else {
+            size++;
+        }
+        int length = to - from;
+        byte[] line = lines[slot];
+        if (line == null || line.length < length) {
+            line = new byte[Math.max(length, INITIAL_LINE_SIZE)];
+            lines[slot] = line;
+        }
+        buffer.get(from, line, 0, length);
+        lengths[slot] = length;
+    }
+
+    /**
+     * Пишет строки от старой к новой, каждую с префиксом и переводом строки, и очищает буфер.
+     */
+    public void drainTo(OutputStream output, byte[] prefix) throws IOException {
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % lines.length;
+            if (prefix != null) {
+                output.write(prefix);
+            }
+            output.write(lines[slot], 0, lengths[slot]);
+            output.write('\n');
+        }
+        clear();
+    }
+
+    /** Очищает буфер, оставляя выделенные массивы для повторного использования */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.cli;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Поиск шаблона без метасимволов regex прямо по байтам строки алгоритмом Бойера — Мура — Хорспула.
+ * Строки, в которых подстроки нет, не декодируются.
+ * <p>
+ * Регистронезависимый поиск сравнивает байты со сложением регистра ASCII. Строки с не-ASCII байтами,
+ * в которых ASCII-поиск ничего не нашёл, проверяются регулярным выражением: в Unicode есть символы,
+ * совпадающие с латинскими буквами без учёта регистра (например, KELVIN SIGN и K).
+ * Для -w найденная подстрока проверяется регулярным выражением на границы слова.
+ */
+public class LiteralLineMatcher implements LineMatcher {
+    private static final byte[] FOLD = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            FOLD[i] = (byte) (i >= 'A' && i <= 'Z' ? i + ('a' - 'A') : i);
+        }
+    }
+
+    private final byte[] needle;
+    private final int[] shift = new int[256];
+    private final boolean ignoreCase;
+    private final LineMatcher verifier;
+    private final LineMatcher fallback;
+
+    /**
+     * @param needle     байты искомой строки в кодировке входа (для ignoreCase — только ASCII)
+     * @param ignoreCase сравнивать без учёта регистра ASCII
+     * @param regex      точная проверка тем же шаблоном как регулярным выражением
+     * @param wholeWord  искать только целые слова (-w)
+     */
+    public LiteralLineMatcher(byte[] needle, boolean ignoreCase, LineMatcher regex, boolean wholeWord) {
+        this.ignoreCase = ignoreCase;
+        this.needle = ignoreCase ? fold(needle) : needle.clone();
+        this.verifier = wholeWord ? regex : null;
+        this.fallback = ignoreCase ? regex : null;
+        Arrays.fill(shift, this.needle.length);
+        for (int i = 0; i < this.needle.length - 1; i++) {
+            int b = this.needle[i] & 0xFF;
+            shift[b] = this.needle.length - 1 - i;
+            if (ignoreCase && b >= 'a' && b <= 'z') {
+                shift[b - ('a' - 'A')] = this.needle.length - 1 - i;
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что шаблон не содержит метасимволов регулярных выражений и может искаться как строка.
+     */
+    public static boolean isLiteral(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("\\^$.|?*+()[]{}".indexOf(pattern.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean matches(ByteBuffer data, int from, int to) {
+        if (indexOf(data, from, to) >= 0) {
+            return verifier == null || verifier.matches(data, from, to);
+        }
+        return fallback != null && hasNonAscii(data, from, to) && fallback.matches(data, from, to);
+    }
+
+    /**
+     * Ищет первое вхождение строки в участке буфера.
+     *
+     * @return смещение вхождения или -1
+     */
+    int indexOf(ByteBuffer data, int from, int to) {
+        int length = needle.length;
+        int last = length - 1;
+        int position = from;
+        while (position <= to - length) {
+            int j = last;
+            while (j >= 0 && byteAt(data, position + j) == needle[j]) {
+                j--;
+            }
+            if (j < 0) {
+                return position;
+            }
+            position += shift[data.get(position + last) & 0xFF];
+        }
+        return -1;
+    }
+
+    private byte byteAt(ByteBuffer data, int index) {
+        byte b = data.get(index);
+        return ignoreCase ? FOLD[b & 0xFF] : b;
+    }
+
+    private static boolean hasNonAscii(ByteBuffer data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data.get(i) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] fold(byte[] bytes) {
+        byte[] folded = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            folded[i] = FOLD[bytes[i] & 0xFF];
+        }
+        return folded;
+    }
+}
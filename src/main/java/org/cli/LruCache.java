@@ -0,0 +1,130 @@
+package org.cli;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Потокобезопасный кэш с вытеснением давно не использованных записей и счётчиками попаданий.
+ * Размер ограничивается суммарным весом записей; по умолчанию вес каждой записи равен 1, то есть
+ * ограничивается число записей.
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public class LruCache<K, V> {
+    private final Map<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+    private long weight;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxEntries максимальное число записей
+     */
+    public LruCache(int maxEntries) {
+        this(maxEntries, value -> 1);
+    }
+
+    /**
+     * @param maxWeight максимальный суммарный вес записей
+     * @param weigher   вес записи, например, её размер в байтах
+     */
+    public LruCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Возвращает значение из кэша или вычисляет и запоминает его.
+     * Если вычисление бросает исключение, ничего не запоминается.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits++;
+                return value;
+            }
+            misses++;
+        }
+        V value = loader.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Возвращает значение из кэша или null, учитывая попадание или промах.
+     */
+    public synchronized V getIfPresent(K key) {
+        V value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    /**
+     * Запоминает значение, вытесняя давно не использованные записи сверх допустимого веса.
+     * Значение тяжелее всего кэша не запоминается.
+     */
+    public synchronized void put(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        weight += valueWeight;
+        Iterator<V> eldest = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= weigher.applyAsLong(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Очищает кэш и сбрасывает счётчики.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Возвращает текущие счётчики кэша.
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, entries.size());
+    }
+
+    /**
+     * Возвращает суммарный вес записей в кэше.
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Счётчики кэша.
+     *
+     * @param hits   число попаданий
+     * @param misses число промахов
+     * @param size   текущее число записей
+     */
+    public record Stats(long hits, long misses, int size) {
+        @Override
+        public String toString() {
+            return "hits=" + hits + " misses=" + misses + " size=" + size;
+        }
+    }
+}
@@ -1,45 +1,218 @@
 package org.cli;
 
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Locale;
 
 /**
- * Главный класс CLI-интерпретатора, принимает ввод пользователя
+ * Главный класс CLI-интерпретатора, принимает ввод пользователя.
+ * <p>
+ * Режимы запуска:
+ * <ul>
+ *     <li>{@code cli} — интерактивный режим с приглашением, если stdin — терминал, иначе команды читаются
+ *     из stdin без приглашения;</li>
+ *     <li>{@code cli -i} — интерактивный режим с приглашением независимо от stdin;</li>
+ *     <li>{@code cli -c "cmd"} — выполнение строки команд;</li>
+ *     <li>{@code cli script.txt} — выполнение команд из файла.</li>
+ * </ul>
+ * Вывод команд идёт через {@link ChannelOutputStream} прямо в канал stdout: в интерактивном режиме буфер
+ * сбрасывается после каждой команды, в неинтерактивных — только при заполнении, а код возврата интерпретатора —
+ * код последней команды. С флагом {@code --stats} в stderr печатается число выполненных команд в секунду.
  */
 public class Main {
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    private static final String USAGE = "Usage: cli [-i] [--stats] [-c COMMANDS | SCRIPT]";
+
     public static void main(String[] args) {
+        int status = run(args, System.in, new FileOutputStream(FileDescriptor.out), System.console() != null);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Разбирает аргументы запуска и выполняет команды в выбранном режиме.
+     *
+     * @param stdin    стандартный ввод
+     * @param stdout   стандартный вывод команд
+     * @param terminal подключён ли stdin к терминалу
+     * @return код возврата интерпретатора
+     */
+    static int run(String[] args, InputStream stdin, OutputStream stdout, boolean terminal) {
+        boolean interactive = false;
+        boolean stats = false;
+        String commands = null;
+        String script = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-i" -> interactive = true;
+                case "--stats" -> stats = true;
+                case "-c" -> {
+                    if (i + 1 == args.length || script != null) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    commands = args[++i];
+                }
+                default -> {
+                    if (args[i].startsWith("-") || script != null || commands != null) {
+                        System.err.println(USAGE);
+                        return 2;
+                    }
+                    script = args[i];
+                }
+            }
+        }
+
+        Charset charset = Charsets.configured();
+        Reader source;
+        if (commands != null) {
+            source = new StringReader(commands);
+        } else if (script != null) {
+            try {
+                source = new InputStreamReader(Files.newInputStream(Paths.get(script)), charset);
+            } catch (IOException e) {
+                System.err.println("cli: " + script + ": No such file");
+                return 127;
+            }
+        } else {
+            source = new InputStreamReader(stdin, charset);
+            interactive |= terminal;
+        }
+
         Environment environment = new Environment();
         Executor executor = new Executor(environment);
         Parser parser = new Parser(environment, executor);
+        ChannelOutputStream sink = new ChannelOutputStream(OutputChannels.of(stdout), WRITE_BUFFER_SIZE,
+                interactive ? ChannelOutputStream.FlushPolicy.EACH_COMMAND : ChannelOutputStream.FlushPolicy.WHEN_FULL);
+        LastByteOutputStream output = new LastByteOutputStream(sink);
 
-        try (Scanner scanner = new Scanner(System.in)) {
+        long started = System.nanoTime();
+        Session session = new Session(parser, executor, sink, output, interactive ? System.out : null);
+        try (BufferedReader reader = new BufferedReader(source, READ_BUFFER_SIZE)) {
+            session.run(reader);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        } finally {
+            executor.jobs().killAll();
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+            }
+        }
+        if (stats) {
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.err.printf(Locale.ROOT, "%d commands in %.3f s (%.0f commands/s)%n",
+                    session.executed, seconds, session.executed / Math.max(seconds, 1e-9));
+        }
+        return interactive ? 0 : session.status;
+    }
+
+    /**
+     * Цикл чтения и выполнения команд.
+     */
+    private static class Session {
+        private final Parser parser;
+        private final Executor executor;
+        private final ChannelOutputStream sink;
+        private final LastByteOutputStream output;
+        private final PrintStream prompt;
+        private long executed;
+        private int status;
+
+        /**
+         * @param prompt куда печатать приглашение или null, если режим неинтерактивный
+         */
+        Session(Parser parser, Executor executor, ChannelOutputStream sink, LastByteOutputStream output,
+                PrintStream prompt) {
+            this.parser = parser;
+            this.executor = executor;
+            this.sink = sink;
+            this.output = output;
+            this.prompt = prompt;
+        }
+
+        void run(BufferedReader reader) throws IOException {
             while (true) {
-                System.out.print("> ");
-                if (!scanner.hasNextLine()) {
+                if (prompt != null) {
+                    prompt.print("> ");
+                    prompt.flush();
+                }
+                String line = reader.readLine();
+                if (line == null) {
                     break;
                 }
-                String input = scanner.nextLine().trim();
-                if (input.isEmpty()) {
+                String input = line.trim();
+                if (input.isEmpty() || input.startsWith("#")) {
                     continue;
                 }
-                if ("exit".equalsIgnoreCase(input)) {
+                if (!execute(input)) {
                     break;
                 }
-                try {
-                    List<Command> commands = parser.parse(input);
-                    String output = null;
-                    for (Command command : commands) {
-                        output = executor.execute(command, output);
-                    }
-                    if (output != null) {
-                        System.out.print(output);
-                        if (output != "") {
-                            System.out.print("\n");
-                        }
+            }
+        }
+
+        /**
+         * Выполняет строку команд.
+         *
+         * @return false, если строка — команда `exit` или в ней выполнилась команда `exit`
+         */
+        private boolean execute(String input) {
+            try {
+                Parser.Line line = parser.parseLine(input);
+                List<Command> commands = line.commands();
+                if (commands.size() == 1 && "exit".equalsIgnoreCase(commands.get(0).getName())) {
+                    status = exitStatus(commands.get(0).getArguments());
+                    return false;
+                }
+                output.reset();
+                if (line.background()) {
+                    status = 0;
+                    if (!commands.isEmpty()) {
+                        int id = executor.jobs().start(input, new Pipeline(commands), executor.fork());
+                        output.write(("[" + id + "]").getBytes(Charsets.configured()));
                     }
-                } catch (Exception e) {
-                    System.err.println("Error: " + e.getMessage());
+                } else {
+                    status = new Pipeline(commands).execute(executor, output);
+                }
+                if (!output.endsWithNewLine()) {
+                    output.write('\n');
                 }
+                sink.commandFinished();
+            } catch (Executor.ExitException e) {
+                status = exitStatus(e.arguments());
+                return false;
+            } catch (Exception e) {
+                status = 1;
+                System.err.println("Error: " + e.getMessage());
+            }
+            executed++;
+            return true;
+        }
+
+        private int exitStatus(List<String> arguments) {
+            if (arguments.isEmpty()) {
+                return status;
+            }
+            try {
+                return Integer.parseInt(arguments.get(0));
+            } catch (NumberFormatException e) {
+                System.err.println("exit: " + arguments.get(0) + ": numeric argument required");
+                return 2;
             }
         }
     }
@@ -0,0 +1,40 @@
+package org.cli;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Запись {@link ByteBuffer} в выходной поток команды без лишних копий, если поток это позволяет.
+ */
+public final class OutputChannels {
+    private OutputChannels() {
+    }
+
+    /**
+     * Возвращает канал для записи в поток: канал файла для {@link FileOutputStream},
+     * сам поток, если он уже канал (например, конец {@link Pipe}), или обёртку над обычным потоком.
+     */
+    public static WritableByteChannel of(OutputStream output) {
+        if (output instanceof FileOutputStream stream) {
+            return stream.getChannel();
+        }
+        if (output instanceof WritableByteChannel channel) {
+            return channel;
+        }
+        return Channels.newChannel(output);
+    }
+
+    /**
+     * Пишет в поток все оставшиеся байты буфера.
+     */
+    public static void write(OutputStream output, ByteBuffer buffer) throws IOException {
+        WritableByteChannel channel = of(output);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package org.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Параллельный grep по одному файлу.
+ * Файл отображается в память и делится на сегменты по границам строк; каждый сегмент ищется
+ * отдельной задачей, а найденные строки пишутся в исходном порядке.
+ * Задача сегмента возвращает только смещения строк, поэтому память не зависит от размера файла.
+ */
+public class ParallelGrep {
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final long MAX_SEGMENT_SIZE = 1024 * 1024 * 1024;
+    private static final int BOUNDARY_SCAN_SIZE = 8 * 1024;
+    private static final byte[] GROUP_SEPARATOR = {'-', '-', '\n'};
+
+    private final ForkJoinPool pool;
+    private final long minSegmentSize;
+
+    public ParallelGrep(ForkJoinPool pool) {
+        this(pool, MIN_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param pool           пул, в котором ищутся сегменты
+     * @param minSegmentSize минимальный размер сегмента в байтах
+     */
+    public ParallelGrep(ForkJoinPool pool, long minSegmentSize) {
+        this.pool = pool;
+        this.minSegmentSize = minSegmentSize;
+    }
+
+    /**
+     * Ищет совпадения в файле и пишет подходящие строки с учетом контекста после совпадения.
+     * Контекст, начатый в конце сегмента, продолжается в следующих сегментах.
+     *
+     * @param separateGroups разделять ли несмежные группы строк "--", как GNU grep с контекстом
+     * @return true, если найдено хотя бы одно совпадение
+     */
+    public boolean search(FileChannel file, Supplier<LineMatcher> matchers, int afterContext, boolean separateGroups,
+                          OutputStream output) throws IOException {
+        long size = file.size();
+        long[] bounds = segmentBounds(file, size);
+
+        List<ForkJoinTask<Segment>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            long start = bounds[i];
+            long end = bounds[i + 1];
+            tasks.add(pool.submit(() -> searchSegment(file, start, end, matchers.get(), afterContext, false)));
+        }
+
+        boolean found = false;
+        int carried = 0;
+        long written = -1;
+        for (ForkJoinTask<Segment> task : tasks) {
+            Segment segment = await(task, tasks);
+            found |= segment.matchCount > 0;
+
+            int carriedLines = (int) Math.min(carried, segment.lineCount);
+            if (carriedLines > 0) {
+                written = writeRange(segment, segment.start, segment.firstLineEnds[carriedLines - 1],
+                        written, size, separateGroups, output);
+            }
+            for (int r = 0; r < segment.rangeCount; r++) {
+                written = writeRange(segment, segment.ranges[2 * r], segment.ranges[2 * r + 1],
+                        written, size, separateGroups, output);
+            }
+            carried = (int) Math.max(segment.owedAtEnd, carried - segment.lineCount);
+        }
+        return found;
+    }
+
+    /**
+     * Параллельно считает совпавшие строки файла, не запоминая их.
+     */
+    public long count(FileChannel file, Supplier<LineMatcher> matchers) throws IOException {
+        long[] bounds = segmentBounds(file, file.size());
+        List<ForkJoinTask<Segment>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            long start = bounds[i];
+            long end = bounds[i + 1];
+            tasks.add(pool.submit(() -> searchSegment(file, start, end, matchers.get(), 0, true)));
+        }
+        long count = 0;
+        for (ForkJoinTask<Segment> task : tasks) {
+            count += await(task, tasks).matchCount;
+        }
+        return count;
+    }
+
+    /**
+     * Дожидается задачи сегмента; при ошибке отменяет все задачи.
+     */
+    private static Segment await(ForkJoinTask<Segment> task, List<ForkJoinTask<Segment>> tasks) throws IOException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            tasks.forEach(t -> t.cancel(true));
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            tasks.forEach(t -> t.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("grep interrupted", e);
+        }
+    }
+
+    /**
+     * Делит файл на сегменты примерно равного размера и сдвигает каждую границу на начало следующей строки.
+     */
+    private long[] segmentBounds(FileChannel file, long size) throws IOException {
+        long segments = Math.max(1, Math.min(pool.getParallelism() * 4L, size / minSegmentSize));
+        segments = Math.max(segments, (size + MAX_SEGMENT_SIZE - 1) / MAX_SEGMENT_SIZE);
+        long[] bounds = new long[(int) segments + 1];
+        for (int i = 1; i < segments; i++) {
+            bounds[i] = Math.max(bounds[i - 1], nextLineStart(file, size * i / segments, size));
+        }
+        bounds[(int) segments] = size;
+        return bounds;
+    }
+
+    private static long nextLineStart(FileChannel file, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = file.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    private Segment searchSegment(FileChannel file, long start, long end, LineMatcher matcher, int afterContext,
+                                  boolean countOnly) {
+        Segment segment = new Segment(start, afterContext);
+        if (start == end) {
+            return segment;
+        }
+        try {
+            segment.data = file.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        MappedByteBuffer data = segment.data;
+        int owed = 0;
+        int limit = data.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && data.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = Math.min(lineEnd + 1, limit);
+
+            if (matcher.matches(data, lineStart, lineEnd)) {
+                segment.matchCount++;
+                if (!countOnly) {
+                    segment.addRange(start + lineStart, start + next);
+                }
+                owed = afterContext;
+            } else if (owed > 0) {
+                segment.addRange(start + lineStart, start + next);
+                owed--;
+            }
+            segment.addLine(start + next);
+            lineStart = next;
+        }
+        segment.owedAtEnd = owed;
+        return segment;
+    }
+
+    /**
+     * Пишет строки участка [from, to), пропуская уже выведенную часть, и дописывает перевод строки
+     * после последней строки файла, если его там нет.
+     *
+     * @param written конец уже выведенных данных или -1, если ничего не выведено
+     * @return новый конец выведенных данных
+     */
+    private static long writeRange(Segment segment, long from, long to, long written, long size,
+                                   boolean separateGroups, OutputStream output) throws IOException {
+        from = Math.max(from, written);
+        if (from >= to) {
+            return written;
+        }
+        if (separateGroups && written >= 0 && from > written) {
+            output.write(GROUP_SEPARATOR);
+        }
+        ByteBuffer range = segment.data.slice((int) (from - segment.start), (int) (to - from));
+        OutputChannels.write(output, range);
+        if (to == size && segment.data.get((int) (to - 1 - segment.start)) != '\n') {
+            output.write('\n');
+        }
+        return to;
+    }
+
+    /**
+     * Результат поиска в сегменте: участки файла для вывода, концы первых строк сегмента
+     * (для контекста, перешедшего из предыдущего сегмента) и долг контекста на конце сегмента.
+     */
+    private static class Segment {
+        final long start;
+        final long[] firstLineEnds;
+        MappedByteBuffer data;
+        long[] ranges = new long[8];
+        int rangeCount;
+        long lineCount;
+        int owedAtEnd;
+        long matchCount;
+
+        Segment(long start, int afterContext) {
+            this.start = start;
+            this.firstLineEnds = new long[afterContext];
+        }
+
+        void addRange(long from, long to) {
+            if (rangeCount > 0 && ranges[2 * rangeCount - 1] == from) {
+                ranges[2 * rangeCount - 1] = to;
+                return;
+            }
+            if (2 * rangeCount == ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            ranges[2 * rangeCount] = from;
+            ranges[2 * rangeCount + 1] = to;
+            rangeCount++;
+        }
+
+        void addLine(long end) {
+            if (lineCount < firstLineEnds.length) {
+                firstLineEnds[(int) lineCount] = end;
+            }
+            lineCount++;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Обработчик команды `parallel [-j N] [-k] [--joblog FILE] TEMPLATE... [::: ARG...]`.
+ * Для каждого аргумента (после `:::` или, если их нет, из строк входа) шаблон превращается в строку команд:
+ * `{}` заменяется аргументом, а без `{}` аргумент дописывается в конец. Строка разбирается {@link Parser}
+ * и выполняется как {@link Pipeline}, так что в шаблоне работают встроенные и внешние команды и `|`.
+ * Одновременно выполняется не больше N заданий. Вывод каждого задания собирается целиком и печатается,
+ * когда задание закончится, или, с `-k`, в порядке аргументов. Код возврата — число неудачных заданий
+ * (не больше 101, как у GNU parallel).
+ */
+public class ParallelHandler {
+    private static final String ARGUMENTS_MARK = ":::";
+    private static final String PLACEHOLDER = "{}";
+    private static final int OUTPUT_MEMORY_LIMIT = 1024 * 1024;
+    private static final int MAX_FAILED_STATUS = 101;
+    private static final Pattern PLAIN_ARGUMENT = Pattern.compile("[\\w./:=,+@%^-]+");
+
+    private final Parser parser;
+    private final Executor executor;
+    private final Charset charset = Charsets.configured();
+
+    /**
+     * @param environment окружение, из которого подставляются переменные шаблона
+     * @param executor    исполнитель команд заданий
+     */
+    public ParallelHandler(Environment environment, Executor executor) {
+        this.parser = new Parser(environment, executor);
+        this.executor = executor;
+    }
+
+    /**
+     * Выполняет parallel.
+     *
+     * @param input вход команды; если аргументов после `:::` нет, каждая непустая строка входа — аргумент
+     */
+    public int execute(List<String> arguments, InputStream input, OutputStream output) throws IOException {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean keepOrder = false;
+        String jobLog = null;
+        int i = 0;
+        for (; i < arguments.size() && arguments.get(i).startsWith("-"); i++) {
+            String argument = arguments.get(i);
+            if (argument.equals("-k") || argument.equals("--keep-order")) {
+                keepOrder = true;
+            } else if (argument.equals("--joblog") && i + 1 < arguments.size()) {
+                jobLog = arguments.get(++i);
+            } else if (argument.startsWith("-j") || argument.equals("--jobs")) {
+                boolean separate = argument.equals("-j") || argument.equals("--jobs");
+                String value = !separate ? argument.substring(2) : i + 1 < arguments.size() ? arguments.get(++i) : "";
+                jobs = parseJobs(value);
+                if (jobs <= 0) {
+                    write(output, "parallel: invalid number of jobs: " + value + "\n");
+                    return 2;
+                }
+            } else {
+                write(output, "parallel: invalid option " + argument + "\n");
+                return 2;
+            }
+        }
+
+        int mark = arguments.indexOf(ARGUMENTS_MARK);
+        List<String> template = arguments.subList(i, mark < 0 ? arguments.size() : Math.max(i, mark));
+        if (template.isEmpty()) {
+            write(output, "parallel: missing command\n");
+            return 2;
+        }
+        List<String> values = mark < 0 ? readArguments(input) : arguments.subList(mark + 1, arguments.size());
+
+        List<String> lines = new ArrayList<>(values.size());
+        for (String value : values) {
+            lines.add(expand(template, value));
+        }
+        List<JobResult> results = run(lines, jobs, keepOrder, output);
+
+        int failed = (int) results.stream().filter(result -> result.status() != 0).count();
+        if (jobLog != null) {
+            String log = formatJobLog(results);
+            if (jobLog.equals("-")) {
+                write(output, log);
+            } else {
+                Files.writeString(Paths.get(jobLog), log, charset);
+            }
+        }
+        return Math.min(failed, MAX_FAILED_STATUS);
+    }
+
+    /**
+     * Выполняет строки команд не больше чем по {@code jobs} одновременно и печатает их вывод.
+     *
+     * @return результаты заданий в порядке аргументов
+     */
+    private List<JobResult> run(List<String> lines, int jobs, boolean keepOrder, OutputStream output)
+            throws IOException {
+        int threads = Math.max(1, Math.min(jobs, lines.size()));
+        ExecutorService pool = StageExecutors.newBoundedExecutor("cli-parallel", threads);
+        CompletionService<JobResult> completion = new ExecutorCompletionService<>(pool);
+        List<Future<JobResult>> futures = new ArrayList<>(lines.size());
+        Queue<SpillBuffer> buffers = new ConcurrentLinkedQueue<>();
+        try {
+            for (int seq = 0; seq < lines.size(); seq++) {
+                int index = seq;
+                futures.add(completion.submit(() -> runJob(index, lines.get(index), buffers)));
+            }
+            JobResult[] results = new JobResult[lines.size()];
+            int next = 0;
+            for (int done = 0; done < lines.size(); done++) {
+                JobResult result = completion.take().get();
+                results[result.index()] = result;
+                if (!keepOrder) {
+                    result.output().moveTo(output);
+                }
+                for (; keepOrder && next < results.length && results[next] != null; next++) {
+                    results[next].output().moveTo(output);
+                }
+            }
+            return List.of(results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("parallel interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Executor.ExitException exit) {
+                throw exit;
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+            pool.shutdownNow();
+            closeAll(pool, buffers);
+        }
+    }
+
+    /**
+     * Дожидается остановки прерванных заданий и закрывает буферы всех заданий: вывод, который не успели
+     * напечатать (ошибка записи, `-k` с недождавшимися заданиями, прерывание), удаляется вместе с временными файлами.
+     * Результат отменённого задания {@link Future} не возвращает, поэтому буферы собираются при создании.
+     */
+    private static void closeAll(ExecutorService pool, Queue<SpillBuffer> buffers) {
+        try {
+            // задания прерваны: внешние процессы уничтожаются, встроенные команды доходят до конца
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SpillBuffer buffer : buffers) {
+            try {
+                buffer.close();
+            } catch (IOException ignored) {
+                // временный файл уже не нужен
+            }
+        }
+    }
+
+    /**
+     * Выполняет одну строку команд, собирая её вывод. Ошибка задания попадает в его вывод.
+     */
+    private JobResult runJob(int index, String line, Queue<SpillBuffer> buffers) throws IOException {
+        SpillBuffer buffer = new SpillBuffer(OUTPUT_MEMORY_LIMIT);
+        buffers.add(buffer);
+        LastByteOutputStream jobOutput = new LastByteOutputStream(buffer);
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = new Pipeline(parser.parse(line)).execute(executor, jobOutput);
+        } catch (InterruptedIOException | Executor.ExitException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            write(jobOutput, "Error: " + e.getMessage());
+            status = 1;
+        }
+        if (!jobOutput.endsWithNewLine()) {
+            jobOutput.write('\n');
+        }
+        return new JobResult(index, line, status, startMillis, System.nanoTime() - start, buffer);
+    }
+
+    /**
+     * Подставляет аргумент в шаблон. Аргумент с пробелами или спецсимволами заключается в одинарные кавычки,
+     * чтобы остаться одним словом при разборе и не подставлять переменные.
+     */
+    static String expand(List<String> template, String value) {
+        String command = String.join(" ", template);
+        String argument = quote(value);
+        return command.contains(PLACEHOLDER) ? command.replace(PLACEHOLDER, argument) : command + " " + argument;
+    }
+
+    /**
+     * Заключает значение в одинарные кавычки; каждая одинарная кавычка внутри закрывает их,
+     * добавляется как {@code "'"} и открывает их снова: {@code it's} превращается в {@code 'it'"'"'s'}.
+     */
+    private static String quote(String value) {
+        if (PLAIN_ARGUMENT.matcher(value).matches()) {
+            return value;
+        }
+        return "'" + value.replace("'", "'\"'\"'") + "'";
+    }
+
+    private List<String> readArguments(InputStream input) throws IOException {
+        List<String> values = new ArrayList<>();
+        if (input == null) {
+            return values;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, charset));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                values.add(line);
+            }
+        }
+        return values;
+    }
+
+    private static int parseJobs(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Журнал заданий в духе `--joblog` GNU parallel: номер, время запуска, длительность в секундах,
+     * код возврата и команда.
+     */
+    private static String formatJobLog(List<JobResult> results) {
+        StringBuilder log = new StringBuilder("Seq\tStarttime\tJobRuntime\tExitval\tCommand\n");
+        for (JobResult result : results) {
+            log.append(String.format(Locale.ROOT, "%d\t%.3f\t%.3f\t%d\t%s%n", result.index() + 1,
+                    result.startMillis() / 1e3, result.nanos() / 1e9, result.status(), result.line()));
+        }
+        return log.toString();
+    }
+
+    private void write(OutputStream output, String text) throws IOException {
+        output.write(text.getBytes(charset));
+    }
+
+    /**
+     * Результат задания.
+     *
+     * @param index       номер аргумента
+     * @param line        выполненная строка команд
+     * @param status      код возврата
+     * @param startMillis время запуска
+     * @param nanos       длительность
+     * @param output      собранный вывод
+     */
+    private record JobResult(int index, String line, int status, long startMillis, long nanos, SpillBuffer output) {
+    }
+}
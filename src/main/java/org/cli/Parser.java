@@ -2,14 +2,21 @@ package org.cli;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 /**
  * Разбирает строку ввода в команды и аргументы.
+ * Строка читается за один проход конечным автоматом: кавычки, ссылки на переменные `$VAR` и разделители `|`
+ * распознаются одновременно, поэтому `|` внутри кавычек не разбивает пайплайн.
+ * Результат лексического разбора (до подстановки переменных) кэшируется по исходной строке,
+ * так что повторяющиеся команды не разбираются заново — подставляются только текущие значения переменных.
+ * Символ `&` вне кавычек в конце строки запускает пайплайн в фоне ({@link Line#background()}).
  */
 public class Parser {
+    private static final int CACHE_SIZE = 1024;
+
     private final Environment environment;
+    private final LruCache<String, Lexed> cache = new LruCache<>(CACHE_SIZE);
 //    private final Executor executor;
 
     public Parser(Environment environment, Executor executor) {
@@ -18,61 +25,263 @@ public class Parser {
     }
 
     /**
-     * Преобразует строку в список команд.
+     * Преобразует строку в список команд. Признак фонового запуска отбрасывается.
      */
     public List<Command> parse(String input) {
-        List<Command> commands = new ArrayList<>();
-        if (input.isBlank()) {
-            return commands;
-        }
+        return parseLine(input).commands();
+    }
 
-        input = resolveVariables(input);
-        String[] commandStrings = input.split("\\|");
-        for (String commandString : commandStrings) {
-            List<String> tokens = tokenize(commandString.trim());
+    /**
+     * Преобразует строку в команды пайплайна вместе с признаком фонового запуска.
+     */
+    public Line parseLine(String input) {
+        Lexed lexed = cache.get(input, Parser::lex);
+        Map<String, String> variables = environment.getVariables();
+        List<Command> commands = new ArrayList<>(lexed.commands().size());
+        for (Word[] words : lexed.commands()) {
+            List<String> tokens = new ArrayList<>(words.length);
+            for (Word word : words) {
+                word.expand(variables, tokens);
+            }
             if (tokens.isEmpty()) {
                 continue;
             }
-            String commandName = tokens.get(0);
-            List<String> args = tokens.subList(1, tokens.size());
-            commands.add(new Command(commandName, args));
+            commands.add(new Command(tokens.get(0), new ArrayList<>(tokens.subList(1, tokens.size()))));
         }
-        return commands;
+        return new Line(commands, lexed.background());
     }
 
     /**
-     * Разбивает строку на аргументы, учитывая кавычки.
+     * Возвращает счётчики кэша разобранных строк.
      */
-    private List<String> tokenize(String input) {
-        List<String> tokens = new ArrayList<>();
-        Matcher matcher = Pattern.compile("\"([^\"]*)\"|'([^']*)'|(\\S+)").matcher(input);
-        while (matcher.find()) {
-            if (matcher.group(1) != null) {
-                tokens.add(matcher.group(1));
-            } else if (matcher.group(2) != null) {
-                tokens.add(matcher.group(2));
+    public LruCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Лексический разбор строки в команды пайплайна, каждая — массив слов.
+     * Внутри одинарных кавычек текст берется как есть, внутри двойных и без кавычек `$VAR` остаётся
+     * ссылкой на переменную. Пустые команды (например, у строки из одних пробелов) пропускаются.
+     * `&`, за которым до конца строки только пробелы, завершает разбор и помечает строку как фоновую;
+     * в остальных местах `&` — обычный символ слова.
+     */
+    static Lexed lex(String input) {
+        List<Word[]> commands = new ArrayList<>(1);
+        List<Word> words = new ArrayList<>();
+        WordBuilder word = new WordBuilder();
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (c == '\'' || c == '"') {
+                int close = input.indexOf(c, i + 1);
+                int end = close < 0 ? length : close;
+                if (c == '\'') {
+                    word.literal(input, i + 1, end, true);
+                } else {
+                    word.scan(input, i + 1, end, true);
+                }
+                i = close < 0 ? length : close + 1;
+            } else if (isBackgroundMark(input, i)) {
+                word.finish(words);
+                finishCommand(words, commands);
+                return new Lexed(commands, true);
+            } else if (c == '|' || Character.isWhitespace(c)) {
+                word.finish(words);
+                if (c == '|') {
+                    finishCommand(words, commands);
+                }
+                i++;
             } else {
-                tokens.add(matcher.group(3));
+                int end = i + 1;
+                while (end < length && !isWordBreak(input.charAt(end)) && !isBackgroundMark(input, end)) {
+                    end++;
+                }
+                word.scan(input, i, end, false);
+                i = end;
+            }
+        }
+        word.finish(words);
+        finishCommand(words, commands);
+        return new Lexed(commands, false);
+    }
+
+    private static boolean isBackgroundMark(String input, int i) {
+        if (input.charAt(i) != '&') {
+            return false;
+        }
+        for (int j = i + 1; j < input.length(); j++) {
+            if (!Character.isWhitespace(input.charAt(j))) {
+                return false;
             }
         }
-        return tokens;
+        return true;
+    }
+
+    private static boolean isWordBreak(char c) {
+        return c == '\'' || c == '"' || c == '|' || Character.isWhitespace(c);
+    }
+
+    private static void finishCommand(List<Word> words, List<Word[]> commands) {
+        if (!words.isEmpty()) {
+            commands.add(words.toArray(new Word[0]));
+            words.clear();
+        }
+    }
+
+    private static boolean isVariableChar(char c) {
+        return c == '_' || c < 128 && Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Разобранная строка.
+     *
+     * @param commands   команды пайплайна
+     * @param background нужно ли выполнить пайплайн в фоне (строка заканчивалась на `&`)
+     */
+    public record Line(List<Command> commands, boolean background) {
+    }
+
+    /**
+     * Результат лексического разбора строки.
+     *
+     * @param commands   команды пайплайна, каждая — массив слов
+     * @param background заканчивалась ли строка на `&`
+     */
+    record Lexed(List<Word[]> commands, boolean background) {
     }
 
     /**
-     * Заменяет переменные окружения вида $VAR на их значения.
+     * Слово до подстановки переменных.
+     * Слово без переменных хранит готовый текст; иначе — чередование литералов и имен переменных.
+     *
+     * @param literal готовый текст или null, если в слове есть переменные
+     * @param parts   части слова: литералы и имена переменных
+     * @param kinds   вид каждой части
      */
-    private String resolveVariables(String arg) {
-        Pattern pattern = Pattern.compile("\\$(\\w+)");
-        Matcher matcher = pattern.matcher(arg);
-        StringBuilder result = new StringBuilder();
-
-        while (matcher.find()) {
-            String varName = matcher.group(1);
-            String value = environment.getVariable(varName);
-            matcher.appendReplacement(result, value);
+    record Word(String literal, String[] parts, byte[] kinds) {
+        static final byte TEXT = 0;
+        static final byte QUOTED_TEXT = 1;
+        static final byte VARIABLE = 2;
+        static final byte QUOTED_VARIABLE = 3;
+
+        /**
+         * Подставляет переменные из снимка окружения и добавляет получившиеся аргументы.
+         * Значение переменной вне кавычек делится на слова по пробельным символам, как в shell;
+         * неизвестная переменная подставляется пустой строкой.
+         */
+        void expand(Map<String, String> variables, List<String> tokens) {
+            if (literal != null) {
+                tokens.add(literal);
+                return;
+            }
+            StringBuilder field = new StringBuilder();
+            boolean present = false;
+            for (int p = 0; p < parts.length; p++) {
+                String part = parts[p];
+                switch (kinds[p]) {
+                    case TEXT -> {
+                        field.append(part);
+                        present |= !part.isEmpty();
+                    }
+                    case QUOTED_TEXT -> {
+                        field.append(part);
+                        present = true;
+                    }
+                    case QUOTED_VARIABLE -> {
+                        field.append(variables.getOrDefault(part, ""));
+                        present = true;
+                    }
+                    default -> {
+                        String value = variables.getOrDefault(part, "");
+                        for (int i = 0; i < value.length(); i++) {
+                            char c = value.charAt(i);
+                            if (!Character.isWhitespace(c)) {
+                                field.append(c);
+                                present = true;
+                            } else if (present) {
+                                tokens.add(field.toString());
+                                field.setLength(0);
+                                present = false;
+                            }
+                        }
+                    }
+                }
+            }
+            if (present) {
+                tokens.add(field.toString());
+            }
+        }
+    }
+
+    /** Накапливает части текущего слова во время разбора */
+    private static final class WordBuilder {
+        private final StringBuilder text = new StringBuilder();
+        private final List<String> parts = new ArrayList<>();
+        private final List<Byte> kinds = new ArrayList<>();
+        private boolean textQuoted;
+        private boolean started;
+
+        /** Добавляет текст без подстановок */
+        void literal(String input, int from, int to, boolean inQuotes) {
+            text.append(input, from, to);
+            textQuoted |= inQuotes;
+            started = true;
+        }
+
+        /** Добавляет текст, выделяя в нем ссылки на переменные */
+        void scan(String input, int from, int to, boolean inQuotes) {
+            int literalStart = from;
+            int i = from;
+            while (i < to) {
+                if (input.charAt(i) == '$' && i + 1 < to && isVariableChar(input.charAt(i + 1))) {
+                    int nameEnd = i + 2;
+                    while (nameEnd < to && isVariableChar(input.charAt(nameEnd))) {
+                        nameEnd++;
+                    }
+                    literal(input, literalStart, i, inQuotes);
+                    flushText();
+                    parts.add(input.substring(i + 1, nameEnd));
+                    kinds.add(inQuotes ? Word.QUOTED_VARIABLE : Word.VARIABLE);
+                    i = nameEnd;
+                    literalStart = nameEnd;
+                } else {
+                    i++;
+                }
+            }
+            literal(input, literalStart, to, inQuotes);
+        }
+
+        /** Переносит накопленный текст в части слова; пустой текст сохраняется, только если он был в кавычках */
+        private void flushText() {
+            if (text.length() > 0 || textQuoted) {
+                parts.add(text.toString());
+                kinds.add(textQuoted ? Word.QUOTED_TEXT : Word.TEXT);
+                text.setLength(0);
+                textQuoted = false;
+            }
         }
-        matcher.appendTail(result);
 
-        return result.toString();
+        /** Завершает слово, если оно было начато */
+        void finish(List<Word> words) {
+            if (!started) {
+                return;
+            }
+            if (parts.isEmpty()) {
+                words.add(new Word(text.toString(), null, null));
+            } else {
+                flushText();
+                byte[] kindArray = new byte[kinds.size()];
+                for (int i = 0; i < kindArray.length; i++) {
+                    kindArray[i] = kinds.get(i);
+                }
+                words.add(new Word(null, parts.toArray(new String[0]), kindArray));
+            }
+            text.setLength(0);
+            parts.clear();
+            kinds.clear();
+            textQuoted = false;
+            started = false;
+        }
     }
 }
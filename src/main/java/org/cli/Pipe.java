@@ -0,0 +1,235 @@
+package org.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ограниченный канал в памяти между двумя стадиями пайплайна.
+ * Писатель блокируется, пока буфер заполнен, а читатель — пока он пуст,
+ * поэтому быстрая стадия не может уйти вперёд медленной больше чем на ёмкость буфера.
+ */
+public class Pipe {
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final byte[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final InputStream source = new Source();
+    private final OutputStream sink = new Sink();
+
+    private int head;
+    private int size;
+    private boolean writerClosed;
+    private boolean readerClosed;
+    private boolean aborted;
+
+    /**
+     * Создаёт канал с указанной ёмкостью буфера в байтах.
+     */
+    public Pipe(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("pipe capacity must be positive: " + capacity);
+        }
+        this.buffer = new byte[capacity];
+    }
+
+    /**
+     * Возвращает читающий конец канала. Его закрытие означает, что данные больше не нужны:
+     * последующие записи завершатся {@link BrokenPipeException}.
+     */
+    public InputStream source() {
+        return source;
+    }
+
+    /**
+     * Возвращает пишущий конец канала. Его закрытие означает конец данных для читателя.
+     */
+    public OutputStream sink() {
+        return sink;
+    }
+
+    /**
+     * Аварийно закрывает канал: заблокированные и последующие операции с обоих концов завершатся ошибкой.
+     */
+    public void abort() {
+        lock.lock();
+        try {
+            aborted = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            while (size == 0) {
+                checkAborted();
+                if (writerClosed || readerClosed) {
+                    return -1;
+                }
+                await(notEmpty);
+            }
+            checkAborted();
+            int count = Math.min(len, size);
+            int first = Math.min(count, buffer.length - head);
+            System.arraycopy(buffer, head, b, off, first);
+            System.arraycopy(buffer, 0, b, off + first, count - first);
+            head = (head + count) % buffer.length;
+            size -= count;
+            notFull.signalAll();
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int write(ByteBuffer src) throws IOException {
+        int written = src.remaining();
+        lock.lock();
+        try {
+            while (src.hasRemaining()) {
+                checkAborted();
+                if (writerClosed) {
+                    throw new IOException("Pipe closed");
+                }
+                if (readerClosed) {
+                    throw new BrokenPipeException();
+                }
+                if (size == buffer.length) {
+                    await(notFull);
+                    continue;
+                }
+                int tail = (head + size) % buffer.length;
+                int count = Math.min(src.remaining(), Math.min(buffer.length - size, buffer.length - tail));
+                src.get(buffer, tail, count);
+                size += count;
+                notEmpty.signalAll();
+            }
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeWriter() {
+        lock.lock();
+        try {
+            writerClosed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeReader() {
+        lock.lock();
+        try {
+            readerClosed = true;
+            size = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkAborted() throws IOException {
+        if (aborted) {
+            throw new IOException("Pipeline cancelled");
+        }
+    }
+
+    private static void await(Condition condition) throws InterruptedIOException {
+        try {
+            condition.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Pipe operation interrupted");
+        }
+    }
+
+    /**
+     * Запись в канал, читатель которого уже закрыл его (аналог SIGPIPE).
+     */
+    public static class BrokenPipeException extends IOException {
+        public BrokenPipeException() {
+            super("Broken pipe");
+        }
+    }
+
+    private class Source extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return Pipe.this.read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return Pipe.this.read(b, off, len);
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            closeReader();
+        }
+    }
+
+    /**
+     * Пишущий конец канала. Принимает и {@link ByteBuffer}, что позволяет передавать в канал
+     * отображённые в память участки файлов без промежуточного массива.
+     */
+    private class Sink extends OutputStream implements WritableByteChannel {
+        @Override
+        public void write(int b) throws IOException {
+            Pipe.this.write(ByteBuffer.wrap(new byte[]{(byte) b}));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            Pipe.this.write(ByteBuffer.wrap(b, off, len));
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return Pipe.this.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            lock.lock();
+            try {
+                return !writerClosed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            closeWriter();
+        }
+    }
+}
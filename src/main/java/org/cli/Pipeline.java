@@ -1,15 +1,44 @@
 package org.cli;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Класс для обработки пайплайнов команд.
+ * Каждая стадия выполняется в своём потоке, стадии связаны ограниченными каналами {@link Pipe},
+ * так что чтение, фильтрация и подсчёт идут одновременно, как в обычной оболочке.
  */
 public class Pipeline {
     private final List<Command> commands;
+    private final int pipeCapacity;
+    private final ExecutorService stageExecutor;
 
     public Pipeline(List<Command> commands) {
+        this(commands, Pipe.DEFAULT_CAPACITY, StageExecutors.shared());
+    }
+
+    /**
+     * Создаёт пайплайн с заданной ёмкостью каналов между стадиями и исполнителем стадий.
+     *
+     * @param commands      команды пайплайна
+     * @param pipeCapacity  ёмкость каждого канала в байтах
+     * @param stageExecutor исполнитель, на котором запускаются стадии; должен уметь выполнять все стадии одновременно
+     */
+    public Pipeline(List<Command> commands, int pipeCapacity, ExecutorService stageExecutor) {
         this.commands = commands;
+        this.pipeCapacity = pipeCapacity;
+        this.stageExecutor = stageExecutor;
     }
 
     /**
@@ -18,13 +47,140 @@ public class Pipeline {
      * @return результат выполнения последней команды
      */
     public String execute(Environment environment) {
-        String input = null;
-        Executor executor = new Executor(environment);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            execute(new Executor(environment), output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toString(Charsets.configured());
+    }
+
+    /**
+     * Выполняет пайплайн в потоковом режиме: последняя команда пишет сразу в {@code output}.
+     * Если одна из стадий падает с ошибкой, остальные стадии отменяются, а ошибка пробрасывается наружу.
+     * Пайплайн вида `time CMD | ...` выполняется с замерами, и после его вывода пишется отчёт по стадиям.
+     *
+     * @param executor исполнитель команд
+     * @param output   поток для вывода последней команды
+     * @return код возврата последней команды
+     */
+    public int execute(Executor executor, OutputStream output) throws IOException {
+        if (!commands.isEmpty() && commands.get(0).getName().equals("time")) {
+            return executeTimed(executor, output);
+        }
+        return execute(commands, executor, output, stageExecutor, null);
+    }
+
+    /**
+     * Выполняет пайплайн без префикса `time` на платформенных потоках, чтобы были доступны счётчики
+     * процессорного времени и памяти, и пишет отчёт: для каждой стадии время, процессорное время,
+     * байты на входе и выходе и выделенную память.
+     */
+    private int executeTimed(Executor executor, OutputStream output) throws IOException {
+        List<String> timed = commands.get(0).getArguments();
+        if (timed.isEmpty()) {
+            output.write("time: missing command\n".getBytes(Charsets.configured()));
+            return 1;
+        }
+        List<Command> stages = new ArrayList<>(commands);
+        stages.set(0, new Command(timed.get(0), timed.subList(1, timed.size())));
+        StageStats[] stats = new StageStats[stages.size()];
+
+        LastByteOutputStream tracked = new LastByteOutputStream(output);
+        long start = System.nanoTime();
+        int status = execute(stages, executor, tracked, StageExecutors.platform(), stats);
+        long total = System.nanoTime() - start;
+
+        String report = TimeReport.format(stats, total);
+        output.write(((tracked.endsWithNewLine() ? "" : "\n") + report).getBytes(Charsets.configured()));
+        return status;
+    }
 
-        for (Command command : commands) {
-            input = executor.execute(command, input);
+    private int execute(List<Command> stages, Executor executor, OutputStream output, ExecutorService pool,
+                        StageStats[] stats) throws IOException {
+        if (stages.isEmpty()) {
+            return 0;
         }
+        if (stages.size() == 1) {
+            return runStage(executor, stages.get(0), 0, null, output, false, stats);
+        }
+
+        List<Pipe> pipes = new ArrayList<>();
+        for (int i = 0; i < stages.size() - 1; i++) {
+            pipes.add(new Pipe(pipeCapacity));
+        }
+
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(pool);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            Command command = stages.get(i);
+            int index = i;
+            InputStream input = i == 0 ? null : pipes.get(i - 1).source();
+            boolean last = i == stages.size() - 1;
+            OutputStream stageOutput = last ? output : pipes.get(i).sink();
+            futures.add(completion.submit(() -> runStage(executor, command, index, input, stageOutput, !last, stats)));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                completion.take().get();
+            }
+            return futures.get(futures.size() - 1).get();
+        } catch (ExecutionException e) {
+            cancel(pipes, futures);
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            cancel(pipes, futures);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Pipeline interrupted");
+        }
+    }
+
+    /**
+     * Выполняет одну стадию и закрывает её концы каналов, чтобы соседние стадии увидели конец данных
+     * или отказ от них. Запись в канал, который уже никто не читает, считается нормальным завершением стадии.
+     * Стадия замеряется {@link StageProbe}; если передан массив {@code stats}, замеры сохраняются в него.
+     */
+    private static int runStage(Executor executor, Command command, int index, InputStream input,
+                                OutputStream output, boolean closeOutput, StageStats[] stats) throws IOException {
+        StageProbe probe = StageProbe.start(command, index, stats != null);
+        int status = 2;
+        try {
+            status = executor.execute(command, probe.input(input), probe.output(output));
+            return status;
+        } catch (Pipe.BrokenPipeException e) {
+            status = 141;
+            return status;
+        } finally {
+            if (input != null) {
+                input.close();
+            }
+            if (closeOutput) {
+                output.close();
+            }
+            StageStats result = probe.finish(status);
+            if (stats != null) {
+                stats[index] = result;
+            }
+        }
+    }
 
-        return input;
+    private static void cancel(List<Pipe> pipes, List<Future<Integer>> stages) {
+        pipes.forEach(Pipe::abort);
+        stages.forEach(stage -> stage.cancel(true));
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException e) {
+            return e;
+        }
+        if (cause instanceof RuntimeException e) {
+            throw e;
+        }
+        if (cause instanceof Error e) {
+            throw e;
+        }
+        return new IOException(cause);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package org.cli;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка строки регулярным выражением: строка декодируется и передаётся в {@link Matcher}.
+ */
+public class RegexLineMatcher implements LineMatcher {
+    private final LineDecoder decoder;
+    private final Matcher matcher;
+
+    public RegexLineMatcher(Pattern pattern, Charset charset) {
+        this.decoder = new LineDecoder(charset);
+        this.matcher = pattern.matcher("");
+    }
+
+    @Override
+    public boolean matches(ByteBuffer data, int from, int to) {
+        return matcher.reset(decoder.decode(data, from, to)).find();
+    }
+}
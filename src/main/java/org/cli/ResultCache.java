@@ -0,0 +1,249 @@
+package org.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Кэш результатов встроенных команд без побочных эффектов (`cat`, `wc`, `grep`) над неизменными файлами.
+ * Ключ — имя команды, её аргументы и идентичность файлов из аргументов: путь, размер, время изменения и
+ * ключ файла (inode там, где он есть). Изменение любого из файлов меняет ключ, и команда выполняется заново.
+ * Кэш выключен по умолчанию и включается командой `cache on`; размер ограничен суммарным объёмом вывода.
+ */
+public class ResultCache {
+    private static final Set<String> PURE_COMMANDS = Set.of("cat", "wc", "grep");
+    private static final Set<String> GREP_VALUE_OPTIONS = Set.of("-A", "-B", "-C", "-m", "--after-context",
+            "--before-context", "--context", "--max-count", "--include", "--exclude");
+    private static final int TRANSFER_CHUNK_SIZE = 64 * 1024;
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final int DEFAULT_MAX_ENTRY_BYTES = 8 * 1024 * 1024;
+
+    private final LruCache<Key, Result> results;
+    private final int maxEntryBytes;
+    private volatile boolean enabled;
+
+    public ResultCache() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRY_BYTES);
+    }
+
+    /**
+     * @param maxBytes      максимальный суммарный объём запомненного вывода
+     * @param maxEntryBytes вывод больше этого размера не запоминается
+     */
+    public ResultCache(long maxBytes, int maxEntryBytes) {
+        this.results = new LruCache<>(maxBytes, result -> result.output().length);
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Строит ключ для команды.
+     *
+     * @return ключ или null, если кэш выключен или результат команды нельзя кэшировать
+     * (команда не из списка или среди аргументов есть каталог, содержимое которого может измениться,
+     * в том числе текущий каталог у `grep -r` без путей)
+     */
+    public Key keyFor(Command command) {
+        if (!enabled || !PURE_COMMANDS.contains(command.getName())) {
+            return null;
+        }
+        if (command.getName().equals("grep") && searchesWorkingDirectory(command.getArguments())) {
+            return null;
+        }
+        List<FileStamp> files = stamps(command.getArguments());
+        return files == null ? null : new Key(command.getName(), List.copyOf(command.getArguments()), files);
+    }
+
+    /**
+     * Возвращает запомненный результат или null.
+     */
+    public Result get(Key key) {
+        return results.getIfPresent(key);
+    }
+
+    /**
+     * Оборачивает вывод команды, запоминая его копию, пока она не больше допустимого размера.
+     * Результат сохраняется вызовом {@link Recorder#commit(int)}.
+     */
+    public Recorder record(Key key, OutputStream output) {
+        return new Recorder(key, output);
+    }
+
+    /** Очищает кэш и счётчики */
+    public void clear() {
+        results.clear();
+    }
+
+    /** Счётчики попаданий и промахов */
+    public LruCache.Stats stats() {
+        return results.stats();
+    }
+
+    /** Суммарный объём запомненного вывода в байтах */
+    public long bytes() {
+        return results.weight();
+    }
+
+    /**
+     * Снимает идентичность файлов, упомянутых в аргументах. Аргументы, не являющиеся путями к
+     * существующим файлам (флаги, шаблон grep), остаются только в списке аргументов ключа.
+     *
+     * @return отпечатки файлов или null, если среди аргументов есть каталог
+     */
+    private static List<FileStamp> stamps(List<String> arguments) {
+        List<FileStamp> stamps = new ArrayList<>();
+        for (String argument : arguments) {
+            Path path;
+            try {
+                path = Paths.get(argument).toAbsolutePath().normalize();
+            } catch (InvalidPathException e) {
+                continue;
+            }
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                continue;
+            }
+            if (attributes.isDirectory()) {
+                return null;
+            }
+            stamps.add(new FileStamp(path.toString(), attributes.size(), attributes.lastModifiedTime().toMillis(),
+                    attributes.fileKey()));
+        }
+        return stamps;
+    }
+
+    /**
+     * Проверяет, что `grep -r` вызван без путей и поэтому ищет в текущем каталоге.
+     * Первый операнд — шаблон, значения опций `-A`, `-B`, `-C`, `-m`, `--include` и `--exclude` операндами не считаются.
+     */
+    private static boolean searchesWorkingDirectory(List<String> arguments) {
+        boolean recursive = false;
+        int operands = 0;
+        for (int i = 0; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+            if (argument.equals("--")) {
+                operands += arguments.size() - i - 1;
+                break;
+            }
+            if (GREP_VALUE_OPTIONS.contains(argument)) {
+                i++;
+            } else if (argument.equals("--recursive")) {
+                recursive = true;
+            } else if (argument.startsWith("-") && !argument.startsWith("--") && argument.length() > 1) {
+                recursive |= argument.indexOf('r') > 0;
+            } else if (!argument.startsWith("--")) {
+                operands++;
+            }
+        }
+        return recursive && operands < 2;
+    }
+
+    /**
+     * Ключ кэша.
+     *
+     * @param command   имя команды
+     * @param arguments аргументы команды
+     * @param files     отпечатки файлов из аргументов
+     */
+    public record Key(String command, List<String> arguments, List<FileStamp> files) {
+    }
+
+    /**
+     * Отпечаток файла.
+     *
+     * @param path     абсолютный путь
+     * @param size     размер в байтах
+     * @param modified время изменения в миллисекундах
+     * @param fileKey  ключ файла в файловой системе (inode и устройство) или null
+     */
+    public record FileStamp(String path, long size, long modified, Object fileKey) {
+    }
+
+    /**
+     * Запомненный результат команды.
+     *
+     * @param status код возврата
+     * @param output вывод команды
+     */
+    public record Result(int status, byte[] output) {
+    }
+
+    /**
+     * Поток, копирующий вывод команды для кэша. Файл, который не поместится в кэш, передаётся дальше через
+     * {@link FileTransferTarget}, так что большой `cat` не теряет передачу средствами ОС.
+     */
+    public final class Recorder extends FilterOutputStream implements FileTransferTarget {
+        private final Key key;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private Recorder(Key key, OutputStream output) {
+            super(output);
+            this.key = key;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (keep(1)) {
+                copy.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (keep(len)) {
+                copy.write(b, off, len);
+            }
+        }
+
+        @Override
+        public long transferFrom(FileChannel file, long position, long count) throws IOException {
+            if (!keep(count) && out instanceof FileTransferTarget target) {
+                return target.transferFrom(file, position, count);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, TRANSFER_CHUNK_SIZE));
+            int read = file.read(buffer, position);
+            if (read > 0) {
+                write(buffer.array(), 0, read);
+            }
+            return read;
+        }
+
+        private boolean keep(long length) {
+            if (copy != null && copy.size() + length > maxEntryBytes) {
+                copy = null;
+            }
+            return copy != null;
+        }
+
+        /**
+         * Сохраняет результат, если вывод поместился и файлы не изменились во время выполнения команды.
+         */
+        public void commit(int status) {
+            if (copy != null && key.files().equals(stamps(key.arguments()))) {
+                results.put(key, new Result(status, copy.toByteArray()));
+            }
+        }
+    }
+}
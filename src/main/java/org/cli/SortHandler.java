@@ -0,0 +1,481 @@
+package org.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Обработчик команды `sort [-n] [-r] [-u] [-t SEP] [-k N[,M]] [-S SIZE] [FILE...]`.
+ * Строки сравниваются как байты без знака (как `sort` с {@code LC_ALL=C}), с `-n` — по числу в начале ключа;
+ * при равных ключах порядок определяет вся строка. Строки читаются без декодирования и сортируются
+ * {@link Arrays#parallelSort} с заранее вычисленными границами ключа. Если данные не помещаются
+ * в бюджет памяти ({@code -S}), отсортированные куски сбрасываются во временные файлы и затем сливаются
+ * k-путевым слиянием через {@link PriorityQueue} (не больше 16 файлов за проход), так что можно сортировать
+ * вход больше кучи.
+ */
+public class SortHandler {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Примерный расход памяти на строку сверх её байт: объект строки, массив и ссылка в списке */
+    private static final int LINE_OVERHEAD = 64;
+    /** Сколько кусков сливается за один проход */
+    private static final int MERGE_FAN_IN = 16;
+    private static final long DEFAULT_MEMORY_LIMIT = Math.min(Runtime.getRuntime().maxMemory() / 4,
+            512L * 1024 * 1024);
+
+    private final Charset charset = Charsets.configured();
+
+    /**
+     * Выполняет sort над входным потоком или файлами из аргументов.
+     */
+    public int execute(List<String> arguments, InputStream input, OutputStream output) throws IOException {
+        Options options = new Options();
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+            if (!argument.startsWith("-") || argument.length() == 1) {
+                files.add(argument);
+                continue;
+            }
+            String error;
+            char option = argument.charAt(1);
+            if ((option == 't' || option == 'k' || option == 'S') && argument.length() == 2) {
+                if (i + 1 == arguments.size()) {
+                    write(output, "sort: option requires an argument -- '" + option + "'\n");
+                    return 2;
+                }
+                error = options.parse(option, arguments.get(++i));
+            } else if (option == 't' || option == 'k' || option == 'S') {
+                error = options.parse(option, argument.substring(2));
+            } else {
+                error = options.parseFlags(argument);
+            }
+            if (error != null) {
+                write(output, "sort: " + error + "\n");
+                return 2;
+            }
+        }
+
+        if (input == null && files.isEmpty()) {
+            write(output, "sort: missing file parameter");
+            return 1;
+        }
+
+        try (Sorter sorter = new Sorter(options)) {
+            if (files.isEmpty()) {
+                sorter.addAll(input);
+            }
+            for (String fileName : files) {
+                try (InputStream file = Files.newInputStream(Paths.get(fileName))) {
+                    sorter.addAll(file);
+                } catch (NoSuchFileException e) {
+                    write(output, "sort: " + fileName + ": No such file\n");
+                    return 2;
+                }
+            }
+            OutputStream buffered = new BufferedOutputStream(output, BUFFER_SIZE);
+            sorter.writeTo(buffered);
+            buffered.flush();
+        }
+        return 0;
+    }
+
+    private void write(OutputStream output, String text) throws IOException {
+        output.write(text.getBytes(charset));
+    }
+
+    /** Флаги команды и порядок строк, который они задают */
+    static final class Options {
+        boolean numeric;
+        boolean reverse;
+        boolean unique;
+        int separator = -1;
+        int firstField = 1;
+        int lastField = Integer.MAX_VALUE;
+        long memoryLimit = DEFAULT_MEMORY_LIMIT;
+
+        /**
+         * Разбирает флаги без значений вида {@code -nru}.
+         *
+         * @return сообщение об ошибке или null
+         */
+        String parseFlags(String argument) {
+            for (int i = 1; i < argument.length(); i++) {
+                switch (argument.charAt(i)) {
+                    case 'n' -> numeric = true;
+                    case 'r' -> reverse = true;
+                    case 'u' -> unique = true;
+                    default -> {
+                        return "invalid option -- '" + argument.charAt(i) + "'";
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Разбирает флаг со значением.
+         *
+         * @return сообщение об ошибке или null
+         */
+        String parse(char option, String value) {
+            switch (option) {
+                case 't' -> {
+                    if (value.length() != 1 || value.charAt(0) > 127) {
+                        return "separator must be a single ASCII character: " + value;
+                    }
+                    separator = value.charAt(0);
+                }
+                case 'k' -> {
+                    String[] fields = value.split(",", -1);
+                    try {
+                        firstField = Integer.parseInt(fields[0]);
+                        lastField = fields.length > 1 ? Integer.parseInt(fields[1]) : Integer.MAX_VALUE;
+                    } catch (NumberFormatException e) {
+                        return "invalid key: " + value;
+                    }
+                    if (fields.length > 2 || firstField < 1 || lastField < firstField) {
+                        return "invalid key: " + value;
+                    }
+                }
+                default -> {
+                    memoryLimit = parseSize(value);
+                    if (memoryLimit <= 0) {
+                        return "invalid buffer size: " + value;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Размер в стиле GNU sort: число с суффиксом b, K, M или G; без суффикса — килобайты.
+         */
+        private static long parseSize(String value) {
+            if (value.isEmpty()) {
+                return -1;
+            }
+            char suffix = Character.toUpperCase(value.charAt(value.length() - 1));
+            long unit = switch (suffix) {
+                case 'B' -> 1;
+                case 'K' -> 1024;
+                case 'M' -> 1024 * 1024;
+                case 'G' -> 1024 * 1024 * 1024;
+                default -> 0;
+            };
+            String digits = unit == 0 ? value : value.substring(0, value.length() - 1);
+            try {
+                return Math.multiplyExact(Long.parseLong(digits), unit == 0 ? 1024 : unit);
+            } catch (NumberFormatException | ArithmeticException e) {
+                return -1;
+            }
+        }
+
+        /** Сравнение ключей строк; равные по нему строки считаются повторами для `-u` */
+        Comparator<SortLine> keyOrder() {
+            Comparator<SortLine> keys = numeric
+                    ? (a, b) -> Double.compare(a.number, b.number)
+                    : SortHandler::compareKeys;
+            return reverse ? keys.reversed() : keys;
+        }
+
+        /** Полный порядок строк: по ключу, а при равных ключах — по всей строке */
+        Comparator<SortLine> lineOrder() {
+            boolean wholeLineKey = !numeric && firstField == 1 && lastField == Integer.MAX_VALUE;
+            if (unique || wholeLineKey) {
+                return keyOrder();
+            }
+            Comparator<SortLine> lines = (a, b) -> Arrays.compareUnsigned(a.bytes, b.bytes);
+            return keyOrder().thenComparing(reverse ? lines.reversed() : lines);
+        }
+
+        SortLine line(byte[] bytes) {
+            int start = fieldStart(bytes, firstField);
+            int end = lastField == Integer.MAX_VALUE ? bytes.length : fieldEnd(bytes, lastField);
+            end = Math.max(start, end);
+            return new SortLine(bytes, start, end, numeric ? parseNumber(bytes, start, end) : 0,
+                    numeric ? 0 : prefix(bytes, start, end));
+        }
+
+        /** Начало поля N (с 1); без -t поле включает предшествующие ему пробелы, как в POSIX sort */
+        private int fieldStart(byte[] bytes, int field) {
+            int position = 0;
+            for (int current = 1; current < field; current++) {
+                position = skipField(bytes, position);
+                if (position == bytes.length) {
+                    return position;
+                }
+                if (separator >= 0) {
+                    position++;
+                }
+            }
+            return position;
+        }
+
+        private int fieldEnd(byte[] bytes, int field) {
+            return skipField(bytes, fieldStart(bytes, field));
+        }
+
+        private int skipField(byte[] bytes, int position) {
+            if (separator >= 0) {
+                while (position < bytes.length && bytes[position] != separator) {
+                    position++;
+                }
+                return position;
+            }
+            while (position < bytes.length && isBlank(bytes[position])) {
+                position++;
+            }
+            while (position < bytes.length && !isBlank(bytes[position])) {
+                position++;
+            }
+            return position;
+        }
+
+        /** Первые 8 байт ключа как число без знака, дополненное нулями: по нему различается большинство строк */
+        private static long prefix(byte[] bytes, int from, int to) {
+            long prefix = 0;
+            int length = Math.min(Long.BYTES, to - from);
+            for (int i = 0; i < length; i++) {
+                prefix |= (bytes[from + i] & 0xFFL) << (Long.BYTES - 1 - i) * 8;
+            }
+            return prefix;
+        }
+
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t';
+        }
+
+        /**
+         * Число в начале ключа: пробелы, необязательный минус, цифры и дробная часть. Строка без числа — ноль.
+         */
+        static double parseNumber(byte[] bytes, int from, int to) {
+            int i = from;
+            while (i < to && isBlank(bytes[i])) {
+                i++;
+            }
+            boolean negative = i < to && bytes[i] == '-';
+            if (negative) {
+                i++;
+            }
+            double value = 0;
+            for (; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                value = value * 10 + (bytes[i] - '0');
+            }
+            if (i < to && bytes[i] == '.') {
+                double scale = 1;
+                for (i++; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                    scale /= 10;
+                    value += (bytes[i] - '0') * scale;
+                }
+            }
+            return negative ? -value : value;
+        }
+    }
+
+    /**
+     * Сравнивает ключи сначала по префиксам, хранящимся в самих строках, и только при равных префиксах —
+     * по байтам. Так при сортировке почти не приходится обращаться к массивам строк, разбросанным по куче.
+     */
+    private static int compareKeys(SortLine a, SortLine b) {
+        int result = Long.compareUnsigned(a.prefix, b.prefix);
+        if (result != 0) {
+            return result;
+        }
+        return Arrays.compareUnsigned(a.bytes, a.keyStart, a.keyEnd, b.bytes, b.keyStart, b.keyEnd);
+    }
+
+    /**
+     * Строка с вычисленными границами ключа.
+     *
+     * @param bytes    байты строки без перевода строки
+     * @param keyStart начало ключа
+     * @param keyEnd   конец ключа
+     * @param number   числовое значение ключа для `-n`
+     * @param prefix   первые 8 байт ключа для быстрого сравнения
+     */
+    record SortLine(byte[] bytes, int keyStart, int keyEnd, double number, long prefix) {
+    }
+
+    /**
+     * Накапливает строки в пределах бюджета памяти и сбрасывает отсортированные куски во временные файлы.
+     */
+    private static final class Sorter implements Closeable {
+        private final Options options;
+        private final Comparator<SortLine> order;
+        private final List<SortLine> lines = new ArrayList<>();
+        private final List<Path> runs = new ArrayList<>();
+        private long memory;
+
+        Sorter(Options options) {
+            this.options = options;
+            this.order = options.lineOrder();
+        }
+
+        void addAll(InputStream input) throws IOException {
+            LineReader reader = new LineReader(input);
+            while (reader.next()) {
+                byte[] bytes = reader.copyLine();
+                lines.add(options.line(bytes));
+                memory += bytes.length + LINE_OVERHEAD;
+                if (memory > options.memoryLimit) {
+                    spill();
+                }
+            }
+        }
+
+        void writeTo(OutputStream output) throws IOException {
+            if (runs.isEmpty()) {
+                writeLines(sorted(), output);
+                return;
+            }
+            if (!lines.isEmpty()) {
+                spill();
+            }
+            merge(output);
+        }
+
+        private SortLine[] sorted() {
+            SortLine[] array = lines.toArray(new SortLine[0]);
+            lines.clear();
+            memory = 0;
+            Arrays.parallelSort(array, order);
+            return array;
+        }
+
+        private void spill() throws IOException {
+            Path run = Files.createTempFile("cli-sort", ".run");
+            runs.add(run);
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE)) {
+                writeLines(sorted(), output);
+            }
+        }
+
+        private void writeLines(SortLine[] sorted, OutputStream output) throws IOException {
+            SortLine previous = null;
+            for (SortLine line : sorted) {
+                if (!isDuplicate(previous, line)) {
+                    output.write(line.bytes());
+                    output.write('\n');
+                }
+                previous = line;
+            }
+        }
+
+        private boolean isDuplicate(SortLine previous, SortLine line) {
+            return options.unique && previous != null && order.compare(previous, line) == 0;
+        }
+
+        /**
+         * Сливает отсортированные куски. Одновременно открыто не больше {@link #MERGE_FAN_IN} кусков: если их
+         * больше, соседние группы сначала сливаются в промежуточные куски, и так до последнего прохода в вывод.
+         * Группы берутся по порядку, поэтому кусок с меньшим номером по-прежнему содержит более ранние строки.
+         */
+        private void merge(OutputStream output) throws IOException {
+            while (runs.size() > MERGE_FAN_IN) {
+                List<Path> merged = new ArrayList<>();
+                try {
+                    for (int from = 0; from < runs.size(); from += MERGE_FAN_IN) {
+                        List<Path> group = runs.subList(from, Math.min(from + MERGE_FAN_IN, runs.size()));
+                        if (group.size() == 1) {
+                            merged.add(group.get(0));
+                            continue;
+                        }
+                        Path run = Files.createTempFile("cli-sort", ".run");
+                        merged.add(run);
+                        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE)) {
+                            mergeRuns(group, out);
+                        }
+                    }
+                } finally {
+                    for (Path run : runs) {
+                        if (!merged.contains(run)) {
+                            Files.deleteIfExists(run);
+                        }
+                    }
+                    runs.clear();
+                    runs.addAll(merged);
+                }
+            }
+            mergeRuns(runs, output);
+        }
+
+        /**
+         * Сливает куски: в очереди лежит текущая строка каждого куска, наименьшая выводится, и её кусок
+         * продвигается на следующую строку. Из равных строк первой выводится строка из куска с меньшим номером,
+         * то есть встретившаяся раньше во входе, поэтому `-u` оставляет первую из равных, как GNU sort.
+         */
+        private void mergeRuns(List<Path> paths, OutputStream output) throws IOException {
+            List<Run> readers = new ArrayList<>(paths.size());
+            PriorityQueue<Run> queue = new PriorityQueue<>(paths.size(),
+                    Comparator.<Run, SortLine>comparing(run -> run.current, order).thenComparingInt(run -> run.index));
+            try {
+                for (Path path : paths) {
+                    Run run = new Run(readers.size(), Files.newInputStream(path));
+                    readers.add(run);
+                    if (run.advance()) {
+                        queue.add(run);
+                    }
+                }
+                SortLine previous = null;
+                while (!queue.isEmpty()) {
+                    Run run = queue.poll();
+                    SortLine line = run.current;
+                    if (!isDuplicate(previous, line)) {
+                        output.write(line.bytes());
+                        output.write('\n');
+                    }
+                    previous = line;
+                    if (run.advance()) {
+                        queue.add(run);
+                    }
+                }
+            } finally {
+                for (Run run : readers) {
+                    run.input.close();
+                }
+            }
+        }
+
+        /** Удаляет временные файлы */
+        @Override
+        public void close() throws IOException {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+
+        /** Курсор по отсортированному куску */
+        private final class Run {
+            private final int index;
+            private final InputStream input;
+            private final LineReader reader;
+            private SortLine current;
+
+            Run(int index, InputStream input) {
+                this.index = index;
+                this.input = input;
+                this.reader = new LineReader(input, BUFFER_SIZE);
+            }
+
+            boolean advance() throws IOException {
+                if (!reader.next()) {
+                    return false;
+                }
+                current = options.line(reader.copyLine());
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Буфер вывода, который держит в памяти не больше заданного числа байт,
+ * а остальное сбрасывает во временный файл. Нужен, чтобы результаты, ожидающие своей очереди
+ * на вывод, не занимали неограниченную память.
+ */
+public class SpillBuffer extends OutputStream {
+    private final int memoryLimit;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private Path spillFile;
+    private OutputStream spill;
+
+    /**
+     * @param memoryLimit сколько байт держать в памяти до переключения на временный файл
+     */
+    public SpillBuffer(int memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (spill == null && memory.size() + len > memoryLimit) {
+            spillFile = Files.createTempFile("cli-spill", ".tmp");
+            spill = Files.newOutputStream(spillFile);
+            memory.writeTo(spill);
+            memory = null;
+        }
+        if (spill != null) {
+            spill.write(b, off, len);
+        } else {
+            memory.write(b, off, len);
+        }
+    }
+
+    /** Был ли буфер сброшен во временный файл */
+    public boolean isSpilled() {
+        return spill != null;
+    }
+
+    /**
+     * Пишет всё накопленное в поток и освобождает буфер. Временный файл удаляется и тогда,
+     * когда запись в поток не удалась.
+     */
+    public void moveTo(OutputStream output) throws IOException {
+        if (spill == null) {
+            memory.writeTo(output);
+            memory.reset();
+            return;
+        }
+        try {
+            spill.close();
+            try (InputStream stored = Files.newInputStream(spillFile)) {
+                stored.transferTo(output);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Удаляет временный файл, если он был создан.
+     */
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+            Files.deleteIfExists(spillFile);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.cli;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR-событие выполнения одной стадии пайплайна. Длительность события — время выполнения стадии.
+ * Записывается при включённой записи JFR (например, {@code -XX:StartFlightRecording}) и просматривается
+ * в JDK Mission Control.
+ */
+@Name("org.cli.Stage")
+@Label("CLI Pipeline Stage")
+@Category("CLI")
+@Description("Execution of one command of a pipeline")
+@StackTrace(false)
+class StageEvent extends Event {
+    @Label("Command")
+    String command;
+
+    @Label("Stage Index")
+    int stage;
+
+    @Label("Exit Status")
+    int status;
+
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+
+    @Label("Bytes In")
+    @DataAmount
+    long bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    long bytesOut;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
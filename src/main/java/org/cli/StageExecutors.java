@@ -0,0 +1,76 @@
+package org.cli;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пулы потоков для параллельно работающих стадий пайплайна.
+ */
+public final class StageExecutors {
+    private static final ExecutorService SHARED = newPerTaskExecutor("cli-stage");
+    private static final ExecutorService PLATFORM = newPlatformExecutor("cli-stage-platform");
+
+    private StageExecutors() {
+    }
+
+    /**
+     * Общий исполнитель стадий, используемый пайплайнами по умолчанию.
+     */
+    public static ExecutorService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Общий исполнитель стадий на платформенных потоках. Нужен, когда стадии замеряются счётчиками
+     * {@link java.lang.management.ThreadMXBean}, которые для виртуальных потоков недоступны.
+     */
+    public static ExecutorService platform() {
+        return PLATFORM;
+    }
+
+    /**
+     * Создаёт исполнитель, запускающий каждую задачу в отдельном потоке.
+     * На JDK 21+ это виртуальные потоки, на более ранних — демонические платформенные потоки из кэширующего пула.
+     *
+     * @param name префикс имён потоков
+     */
+    public static ExecutorService newPerTaskExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return newPlatformExecutor(name);
+        }
+    }
+
+    /**
+     * Создаёт исполнитель не больше чем с {@code threads} демоническими платформенными потоками;
+     * лишние задачи ждут в очереди, а простаивающие потоки завершаются.
+     *
+     * @param name    префикс имён потоков
+     * @param threads максимальное число одновременно выполняемых задач
+     */
+    public static ExecutorService newBoundedExecutor(String name, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ExecutorService newPlatformExecutor(String name) {
+        return Executors.newCachedThreadPool(daemonThreads(name));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
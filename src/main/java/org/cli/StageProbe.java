@@ -0,0 +1,190 @@
+package org.cli;
+
+import jdk.jfr.FlightRecorder;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Замер стадии пайплайна в потоке, который её выполняет: время, процессорное время и выделенная память
+ * по счётчикам {@link ThreadMXBean}, число байт на входе и выходе. Результат публикуется как {@link StageEvent}.
+ * Потоки стадии оборачиваются счётчиками байт, только если замер нужен команде `time` или событие включено в JFR.
+ * Пока JFR не запущен, событие не создаётся, а {@link ThreadMXBean} запрашивается только для подробных замеров,
+ * поэтому обычные команды не загружают классы JFR и JMX при старте.
+ */
+final class StageProbe {
+    private final String command;
+    private final StageEvent event;
+    private final boolean counting;
+    private final long startNanos;
+    private final long startCpu;
+    private final long startAllocated;
+    private CountingInputStream input;
+    private CountingOutputStream output;
+
+    private StageProbe(Command command, int index, boolean detailed) {
+        this.command = String.join(" ", command.getFullCommand());
+        this.event = FlightRecorder.isInitialized() ? new StageEvent() : null;
+        this.counting = detailed || event != null && event.isEnabled();
+        if (event != null) {
+            event.command = this.command;
+            event.stage = index;
+            event.begin();
+        }
+        this.startNanos = System.nanoTime();
+        this.startCpu = counting ? cpuTime() : -1;
+        this.startAllocated = counting ? allocatedBytes() : -1;
+    }
+
+    /**
+     * Начинает замер стадии в текущем потоке.
+     *
+     * @param index    номер стадии с 0
+     * @param detailed нужны ли подробные замеры независимо от JFR
+     */
+    static StageProbe start(Command command, int index, boolean detailed) {
+        return new StageProbe(command, index, detailed);
+    }
+
+    /** Вход стадии, при необходимости со счётчиком байт */
+    InputStream input(InputStream stream) {
+        if (!counting || stream == null) {
+            return stream;
+        }
+        input = new CountingInputStream(stream);
+        return input;
+    }
+
+    /** Вывод стадии, при необходимости со счётчиком байт */
+    OutputStream output(OutputStream stream) {
+        if (!counting) {
+            return stream;
+        }
+        output = new CountingOutputStream(stream);
+        return output;
+    }
+
+    /**
+     * Завершает замер и публикует событие JFR.
+     */
+    StageStats finish(int status) {
+        long wall = System.nanoTime() - startNanos;
+        long cpu = delta(startCpu, counting ? cpuTime() : -1);
+        long allocated = delta(startAllocated, counting ? allocatedBytes() : -1);
+        long bytesIn = input == null ? 0 : input.count;
+        long bytesOut = output == null ? 0 : output.count;
+
+        if (event != null) {
+            event.end();
+        }
+        if (event != null && event.shouldCommit()) {
+            event.status = status;
+            event.cpuTime = cpu;
+            event.bytesIn = bytesIn;
+            event.bytesOut = bytesOut;
+            event.allocated = allocated;
+            event.commit();
+        }
+        return new StageStats(command, status, wall, cpu, bytesIn, bytesOut, allocated);
+    }
+
+    private static long delta(long start, long end) {
+        return start < 0 || end < 0 ? -1 : end - start;
+    }
+
+    private static long cpuTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try {
+            return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /** Поток, считающий прочитанные байты */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Поток, считающий записанные байты. Остаётся каналом, чтобы команды, пишущие буферами
+     * (как `cat` участками отображённого файла), не теряли этот путь.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream implements WritableByteChannel {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int length = src.remaining();
+            OutputChannels.write(out, src);
+            count += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.cli;
+
+/**
+ * Замеры одной стадии пайплайна.
+ *
+ * @param command        команда стадии
+ * @param status         код возврата
+ * @param wallNanos      время выполнения, нс
+ * @param cpuNanos       процессорное время потока стадии, нс, или -1, если недоступно
+ * @param bytesIn        прочитано байт со входа
+ * @param bytesOut       записано байт в вывод
+ * @param allocatedBytes выделено памяти потоком стадии, байт, или -1, если недоступно
+ */
+public record StageStats(String command, int status, long wallNanos, long cpuNanos, long bytesIn, long bytesOut,
+                         long allocatedBytes) {
+}
@@ -0,0 +1,52 @@
+package org.cli;
+
+import java.util.Locale;
+
+/**
+ * Отчёт команды `time` по стадиям пайплайна.
+ */
+final class TimeReport {
+    private static final int COMMAND_WIDTH = 24;
+    private static final String ROW = "%-3s %-" + COMMAND_WIDTH + "s %6s %10s %10s %12s %12s %12s%n";
+
+    private TimeReport() {
+    }
+
+    /**
+     * Форматирует таблицу: номер стадии, команда, код возврата, время и процессорное время в мс,
+     * байты на входе и выходе и выделенная память; последняя строка — общее время пайплайна.
+     * Недоступные замеры выводятся как "-".
+     * Процессорное время и память считаются только в потоке стадии. У внешней команды этот поток лишь ждёт
+     * процесс, а его вывод и вход копируют потоки {@link StageExecutors#shared()}, поэтому для неё эти столбцы
+     * близки к нулю и не включают ни работу самого процесса, ни копирование его данных; байты при этом
+     * считаются полностью.
+     */
+    static String format(StageStats[] stages, long totalNanos) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, ROW,
+                "#", "command", "status", "real ms", "cpu ms", "bytes in", "bytes out", "allocated"));
+        for (int i = 0; i < stages.length; i++) {
+            StageStats stage = stages[i];
+            if (stage == null) {
+                continue;
+            }
+            report.append(String.format(Locale.ROOT, ROW,
+                    i + 1, abbreviate(stage.command()), stage.status(), millis(stage.wallNanos()),
+                    millis(stage.cpuNanos()), stage.bytesIn(), stage.bytesOut(), amount(stage.allocatedBytes())));
+        }
+        report.append(String.format(Locale.ROOT, ROW, "", "total", "", millis(totalNanos), "", "", "", ""));
+        return report.toString();
+    }
+
+    private static String abbreviate(String command) {
+        return command.length() <= COMMAND_WIDTH ? command : command.substring(0, COMMAND_WIDTH - 3) + "...";
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "-" : String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String amount(long bytes) {
+        return bytes < 0 ? "-" : String.valueOf(bytes);
+    }
+}
@@ -0,0 +1,290 @@
+package org.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Обработчик команды wc с поддержкой флагов -l, -w, -c.
+ * Большие файлы отображаются в память, режутся на куски и считаются параллельно в {@link ForkJoinPool};
+ * счётчики соседних кусков сливаются с учётом слова, разрезанного границей куска.
+ */
+public class WcHandler {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final boolean[] SPACE = new boolean[256];
+
+    static {
+        for (char c : new char[]{' ', '\n', '\t', '\r', '\f', 0x0B}) {
+            SPACE[c] = true;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+    private final Charset charset = Charsets.configured();
+
+    public WcHandler() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool      пул, в котором считаются куски файла
+     * @param chunkSize размер куска файла, обрабатываемого одной задачей
+     */
+    public WcHandler(ForkJoinPool pool, long chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Выполняет wc над входным потоком или файлами из аргументов.
+     */
+    public int execute(List<String> arguments, InputStream input, OutputStream output) throws IOException {
+        Options options = new Options();
+        List<String> files = new ArrayList<>();
+        for (String argument : arguments) {
+            if (argument.startsWith("-") && argument.length() > 1) {
+                String invalid = options.parse(argument);
+                if (invalid != null) {
+                    write(output, "wc: invalid option -- '" + invalid + "'");
+                    return 1;
+                }
+            } else {
+                files.add(argument);
+            }
+        }
+        options.applyDefaults();
+
+        if (input != null) {
+            write(output, format(count(input, options), options));
+            return 0;
+        }
+
+        if (files.isEmpty()) {
+            write(output, "wc: missing file parameter");
+            return 1;
+        }
+
+        int status = 0;
+        for (String fileName : files) {
+            Counts counts;
+            try (FileChannel file = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+                counts = count(file, options);
+            } catch (IOException e) {
+                write(output, "wc: " + fileName + ": No such file\n");
+                status = 1;
+                continue;
+            }
+            write(output, format(counts, options) + " " + fileName + "\n");
+        }
+        return status;
+    }
+
+    /**
+     * Считает поток за один проход буфером фиксированного размера.
+     */
+    Counts count(InputStream input, Options options) throws IOException {
+        Counts counts = new Counts();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = input.read(buffer)) != -1) {
+            counts.update(buffer, length, options);
+        }
+        return counts;
+    }
+
+    /**
+     * Считает файл. Если нужны только байты, файл не читается вовсе; иначе крупные файлы
+     * считаются параллельно по кускам.
+     */
+    Counts count(FileChannel file, Options options) throws IOException {
+        long size = file.size();
+        if (!options.lines && !options.words) {
+            Counts counts = new Counts();
+            counts.bytes = size;
+            return counts;
+        }
+        try {
+            return pool.invoke(new CountTask(file, 0, size, options));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private String format(Counts counts, Options options) {
+        List<String> columns = new ArrayList<>(3);
+        if (options.lines) {
+            columns.add(String.valueOf(counts.totalLines()));
+        }
+        if (options.words) {
+            columns.add(String.valueOf(counts.words));
+        }
+        if (options.bytes) {
+            columns.add(String.valueOf(counts.bytes));
+        }
+        return String.join(" ", columns);
+    }
+
+    private void write(OutputStream output, String text) throws IOException {
+        output.write(text.getBytes(charset));
+    }
+
+    /**
+     * Какие счётчики запрошены. Без флагов считаются все три.
+     */
+    static class Options {
+        boolean lines;
+        boolean words;
+        boolean bytes;
+
+        /** Разбирает группу флагов вида -lw; возвращает неизвестный флаг или null */
+        String parse(String argument) {
+            for (char flag : argument.substring(1).toCharArray()) {
+                switch (flag) {
+                    case 'l' -> lines = true;
+                    case 'w' -> words = true;
+                    case 'c' -> bytes = true;
+                    default -> {
+                        return String.valueOf(flag);
+                    }
+                }
+            }
+            return null;
+        }
+
+        void applyDefaults() {
+            if (!lines && !words && !bytes) {
+                lines = words = bytes = true;
+            }
+        }
+    }
+
+    /**
+     * Счётчики для непрерывного участка данных. Помнит, начинается и заканчивается ли участок внутри слова,
+     * чтобы при слиянии соседних участков не посчитать разрезанное слово дважды.
+     */
+    static class Counts {
+        long lines;
+        long words;
+        long bytes;
+        boolean startsInWord;
+        boolean endsInWord;
+        byte lastByte = '\n';
+
+        void update(byte[] data, int length, Options options) {
+            if (length == 0) {
+                return;
+            }
+            if (bytes == 0) {
+                startsInWord = !isSpace(data[0]);
+            }
+            if (options.lines) {
+                for (int i = 0; i < length; i++) {
+                    if (data[i] == '\n') {
+                        lines++;
+                    }
+                }
+            }
+            if (options.words) {
+                boolean inWord = endsInWord;
+                for (int i = 0; i < length; i++) {
+                    boolean space = isSpace(data[i]);
+                    if (!space && !inWord) {
+                        words++;
+                    }
+                    inWord = !space;
+                }
+            }
+            endsInWord = !isSpace(data[length - 1]);
+            lastByte = data[length - 1];
+            bytes += length;
+        }
+
+        /** Сливает счётчики участка с непосредственно следующим за ним участком */
+        Counts merge(Counts next) {
+            if (bytes == 0) {
+                return next;
+            }
+            if (next.bytes == 0) {
+                return this;
+            }
+            Counts merged = new Counts();
+            merged.lines = lines + next.lines;
+            merged.words = words + next.words - (endsInWord && next.startsInWord ? 1 : 0);
+            merged.bytes = bytes + next.bytes;
+            merged.startsInWord = startsInWord;
+            merged.endsInWord = next.endsInWord;
+            merged.lastByte = next.lastByte;
+            return merged;
+        }
+
+        /** Число строк, включая последнюю строку без перевода строки */
+        long totalLines() {
+            return lines + (lastByte != '\n' ? 1 : 0);
+        }
+
+        private static boolean isSpace(byte b) {
+            return SPACE[b & 0xFF];
+        }
+    }
+
+    /**
+     * Считает участок файла: делит его пополам, пока участок больше размера куска,
+     * а кусок отображает в память и считает в одном потоке.
+     */
+    private class CountTask extends RecursiveTask<Counts> {
+        private final FileChannel file;
+        private final long start;
+        private final long end;
+        private final Options options;
+
+        CountTask(FileChannel file, long start, long end, Options options) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+            this.options = options;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (end - start <= chunkSize) {
+                return countChunk();
+            }
+            long middle = start + (end - start) / 2;
+            CountTask left = new CountTask(file, start, middle, options);
+            left.fork();
+            Counts right = new CountTask(file, middle, end, options).compute();
+            return left.join().merge(right);
+        }
+
+        private Counts countChunk() {
+            Counts counts = new Counts();
+            if (start == end) {
+                return counts;
+            }
+            try {
+                MappedByteBuffer chunk = file.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, end - start)];
+                while (chunk.hasRemaining()) {
+                    int length = Math.min(buffer.length, chunk.remaining());
+                    chunk.get(buffer, 0, length);
+                    counts.update(buffer, length, options);
+                }
+                return counts;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
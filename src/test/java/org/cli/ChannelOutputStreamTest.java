@@ -0,0 +1,87 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelOutputStreamTest {
+
+    @Test
+    void testBatchOutputIsWrittenWhenBufferIsFull() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        ChannelOutputStream output = new ChannelOutputStream(Channels.newChannel(target), 8,
+                ChannelOutputStream.FlushPolicy.WHEN_FULL);
+
+        output.write("abcde".getBytes(StandardCharsets.UTF_8));
+        output.commandFinished();
+        assertEquals(0, target.size());
+
+        output.write("fghij".getBytes(StandardCharsets.UTF_8));
+        assertEquals("abcde", target.toString(StandardCharsets.UTF_8));
+
+        output.flush();
+        assertEquals("abcdefghij", target.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testInteractiveOutputIsWrittenAfterEachCommand() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        ChannelOutputStream output = new ChannelOutputStream(Channels.newChannel(target), 1024,
+                ChannelOutputStream.FlushPolicy.EACH_COMMAND);
+
+        output.write('x');
+        output.write('\n');
+        assertEquals(0, target.size());
+        output.commandFinished();
+        assertEquals("x\n", target.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testLargeWritesKeepOrder() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        ChannelOutputStream output = new ChannelOutputStream(Channels.newChannel(target), 4,
+                ChannelOutputStream.FlushPolicy.WHEN_FULL);
+        byte[] large = new byte[10];
+        Arrays.fill(large, (byte) 'b');
+
+        output.write('a');
+        output.write(large);
+        output.write(ByteBuffer.wrap(large, 0, 6));
+        output.write('c');
+        output.close();
+
+        assertEquals("a" + "b".repeat(16) + "c", target.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testTransferFromFileFlushesBufferFirst(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("data.txt");
+        Files.writeString(file, "file contents\n");
+        Path result = tempDir.resolve("out.txt");
+
+        try (FileChannel target = FileChannel.open(result, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+             FileChannel source = FileChannel.open(file)) {
+            LastByteOutputStream output = new LastByteOutputStream(new ChannelOutputStream(target, 1024,
+                    ChannelOutputStream.FlushPolicy.WHEN_FULL));
+            output.write("head ".getBytes(StandardCharsets.UTF_8));
+            assertEquals(14, output.transferFrom(source, 0, source.size()));
+            assertTrue(output.endsWithNewLine());
+            output.flush();
+        }
+
+        assertEquals("head file contents\n", Files.readString(result));
+    }
+}
@@ -0,0 +1,70 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class CommandResolverTest {
+
+    private final Environment environment = new Environment();
+    private final CommandResolver resolver = new CommandResolver(environment);
+
+    @Test
+    void testResolvesOnceAndCountsHits(@TempDir Path tempDir) throws IOException {
+        Path tool = executable(tempDir.resolve("bin"), "tool");
+        environment.setVariable("PATH", tempDir.resolve("empty") + ":" + tool.getParent());
+
+        assertEquals(tool.toAbsolutePath(), resolver.resolve("tool"));
+        assertEquals(tool.toAbsolutePath(), resolver.resolve("tool"));
+        assertEquals(tool.toAbsolutePath(), resolver.resolve("tool"));
+
+        assertEquals(2, resolver.hits());
+        assertEquals(1, resolver.misses());
+        assertEquals(List.of("   2\t" + tool.toAbsolutePath()), resolver.describe());
+    }
+
+    @Test
+    void testPathChangeInvalidatesCache(@TempDir Path tempDir) throws IOException {
+        Path first = executable(tempDir.resolve("first"), "tool");
+        Path second = executable(tempDir.resolve("second"), "tool");
+
+        environment.setVariable("PATH", first.getParent().toString());
+        assertEquals(first.toAbsolutePath(), resolver.resolve("tool"));
+
+        environment.setVariable("PATH", second.getParent().toString());
+        assertEquals(second.toAbsolutePath(), resolver.resolve("tool"));
+        assertEquals(2, resolver.misses());
+    }
+
+    @Test
+    void testMissingAndExplicitPathsAreNotCached(@TempDir Path tempDir) throws IOException {
+        environment.setVariable("PATH", tempDir.toString());
+        assertNull(resolver.resolve("tool"));
+
+        Path tool = executable(tempDir, "tool");
+        assertEquals(tool.toAbsolutePath(), resolver.resolve("tool"));
+        assertNull(resolver.resolve(tool.toString()));
+
+        resolver.clear();
+        assertEquals(List.of(), resolver.describe());
+        assertEquals(0, resolver.misses());
+    }
+
+    private static Path executable(Path directory, String name) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(name);
+        Files.writeString(file, "#!/bin/sh\n");
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return file;
+    }
+}
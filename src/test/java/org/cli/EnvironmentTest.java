@@ -38,4 +38,50 @@ class EnvironmentTest {
 
         assertEquals("World", env.getVariable("TEST_VAR"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSnapshotIsImmutableAndUnaffectedBySet() {
+        Environment env = new Environment();
+        env.setVariable("A", "1");
+        Map<String, String> snapshot = env.getVariables();
+        env.setVariable("A", "2");
+
+        assertEquals("1", snapshot.get("A"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put("A", "3"));
+    }
+
+    @Test
+    void testForkIsIndependent() {
+        Environment env = new Environment();
+        env.setVariable("A", "1");
+        Environment fork = env.fork();
+        fork.setVariable("A", "fork");
+        env.setVariable("B", "parent");
+
+        assertEquals("1", env.getVariable("A"));
+        assertEquals("fork", fork.getVariable("A"));
+        assertFalse(fork.hasVariable("B"));
+    }
+
+    @Test
+    void testConcurrentSetsAreNotLost() throws InterruptedException {
+        Environment env = new Environment();
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int id = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    env.setVariable("V_" + id + "_" + i, String.valueOf(i));
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        for (int t = 0; t < writers.length; t++) {
+            assertEquals("199", env.getVariable("V_" + t + "_199"));
+            assertEquals("0", env.getVariable("V_" + t + "_0"));
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package org.cli;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
 
@@ -89,4 +99,135 @@ class ExecutorTest {
         assertNotNull(output);
         assertFalse(output.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testStreamingCatCopiesInputToOutput() throws IOException {
+        byte[] data = "first\nsecond\n".getBytes();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = executor.execute(new Command("cat", List.of()), new ByteArrayInputStream(data), output);
+        assertEquals(0, status);
+        assertArrayEquals(data, output.toByteArray());
+    }
+
+    @Test
+    void testStreamingGrepReturnsStatus() throws IOException {
+        Command grepCommand = new Command("grep", List.of("missing"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = executor.execute(grepCommand, new ByteArrayInputStream("a\nb\n".getBytes()), output);
+        assertEquals(1, status);
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    void testCatToFileUsesChannelTransfer(@TempDir Path tempDir) throws IOException {
+        Path source = tempDir.resolve("source.txt");
+        Path target = tempDir.resolve("target.txt");
+        Files.writeString(source, "line 1\nline 2");
+
+        try (FileOutputStream output = new FileOutputStream(target.toFile())) {
+            int status = executor.execute(new Command("cat", List.of(source.toString())), null, output);
+            assertEquals(0, status);
+        }
+
+        assertEquals("line 1\nline 2\n", Files.readString(target));
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void testExternalCommandStreamsLargeInputWithoutDeadlock() throws Exception {
+        byte[] data = new byte[16 * 1024 * 1024];
+        Arrays.fill(data, (byte) 'a');
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int[] status = {-1};
+        Thread worker = new Thread(() -> {
+            try {
+                status[0] = executor.execute(new Command("tr", List.of("a", "b")),
+                        new ByteArrayInputStream(data), output);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        worker.start();
+        worker.join(30_000);
+
+        assertFalse(worker.isAlive(), "external command deadlocked");
+        assertEquals(0, status[0]);
+        assertEquals(data.length, output.size());
+        assertEquals('b', output.toByteArray()[data.length - 1]);
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void testHashShowsResolvedCommandsAndClearsOnPathChange() {
+        executor.execute(new Command("ls", List.of()), null);
+        executor.execute(new Command("ls", List.of()), null);
+
+        String table = executor.execute(new Command("hash", List.of()), null);
+        assertTrue(table.startsWith("hits\tcommand\n"));
+        assertTrue(table.contains("   1\t"));
+        assertTrue(table.contains("/ls\n"));
+        assertTrue(table.endsWith("hits: 1, misses: 1\n"));
+
+        executor.execute(new Command("set", List.of("PATH=" + environment.getVariable("PATH") + ":/nonexistent")),
+                null);
+        executor.execute(new Command("ls", List.of()), null);
+        assertTrue(executor.execute(new Command("hash", List.of()), null).contains("   0\t"));
+
+        executor.execute(new Command("hash", List.of("-r")), null);
+        assertEquals("hash: hash table empty\nhits: 0, misses: 0\n",
+                executor.execute(new Command("hash", List.of()), null));
+    }
+
+    @Test
+    void testResultCacheReusesOutputUntilFileChanges(@TempDir Path tempDir) throws IOException {
+        Path log = tempDir.resolve("app.log");
+        Files.writeString(log, "ERROR one\nok\n");
+        Command count = new Command("grep", List.of("-c", "ERROR", log.toString()));
+
+        executor.execute(new Command("cache", List.of("on")), null);
+        assertEquals("1\n", executor.execute(count, null));
+        assertEquals("1\n", executor.execute(count, null));
+
+        Files.writeString(log, "ERROR two\n", StandardOpenOption.APPEND);
+        assertEquals("2\n", executor.execute(count, null));
+
+        assertEquals("enabled: on\nentries: 2\nbytes: 4\nhits: 1\nmisses: 2\n",
+                executor.execute(new Command("cache", List.of("stats")), null));
+
+        executor.execute(new Command("cache", List.of("clear")), null);
+        assertTrue(executor.execute(new Command("cache", List.of()), null).contains("entries: 0\n"));
+    }
+
+    @Test
+    void testResultCacheDoesNotCacheRecursiveGrepOfWorkingDirectory() throws IOException {
+        Path first = Path.of("cache-recursive-1.txt");
+        Path second = Path.of("cache-recursive-2.txt");
+        Command search = new Command("grep", List.of("-r", "--include", "cache-recursive-*", "needle"));
+        try {
+            Files.writeString(first, "needle one\n");
+            executor.execute(new Command("cache", List.of("on")), null);
+            assertEquals("cache-recursive-1.txt:needle one\n", executor.execute(search, null));
+
+            Files.writeString(second, "needle two\n");
+            assertEquals("cache-recursive-1.txt:needle one\ncache-recursive-2.txt:needle two\n",
+                    executor.execute(search, null));
+
+            Command cat = new Command("cat", List.of(first.toString()));
+            assertEquals("needle one\n\n", executor.execute(cat, null));
+            assertEquals("needle one\n\n", executor.execute(cat, null));
+            assertTrue(executor.execute(new Command("cache", List.of("stats")), null)
+                    .contains("entries: 1\nbytes: 12\nhits: 1\n"));
+        } finally {
+            Files.deleteIfExists(first);
+            Files.deleteIfExists(second);
+        }
+    }
+
+    @Test
+    void testResultCacheIsOptInAndSkipsPipedInput() {
+        executor.execute(new Command("wc", List.of()), "a b\n");
+        executor.execute(new Command("cache", List.of("on")), null);
+        executor.execute(new Command("wc", List.of()), "a b\n");
+        assertTrue(executor.execute(new Command("cache", List.of("stats")), null).contains("misses: 0\n"));
+    }
+}
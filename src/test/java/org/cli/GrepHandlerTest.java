@@ -4,9 +4,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
@@ -102,6 +106,31 @@ class GrepHandlerTest {
         assertEquals("Строка A\nСтрока B\nСтрока A\nСтрока C\nСтрока D\n", output);
     }
 
+    @Test
+    void testGrepBeforeContextWithGroupSeparators() throws IOException {
+        GrepHandler handler = new GrepHandler(environment);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        String input = "a\nb\nMATCH 1\nc\nd\ne\nf\nMATCH 2\nMATCH 3\ng\n";
+        handler.execute(List.of("-B", "2", "MATCH"), new ByteArrayInputStream(input.getBytes()), output);
+        assertEquals("a\nb\nMATCH 1\n--\ne\nf\nMATCH 2\nMATCH 3\n", output.toString());
+
+        output.reset();
+        handler.execute(List.of("-C", "1", "MATCH"), new ByteArrayInputStream(input.getBytes()), output);
+        assertEquals("b\nMATCH 1\nc\n--\nf\nMATCH 2\nMATCH 3\ng\n", output.toString());
+
+        output.reset();
+        handler.execute(List.of("-C", "2", "-A", "0", "MATCH"), new ByteArrayInputStream(input.getBytes()), output);
+        assertEquals("a\nb\nMATCH 1\n--\ne\nf\nMATCH 2\nMATCH 3\n", output.toString());
+    }
+
+    @Test
+    void testGrepZeroContextStillSeparatesGroups() throws IOException {
+        GrepHandler handler = new GrepHandler(environment);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        handler.execute(List.of("-A", "0", "x"), new ByteArrayInputStream("x1\nx2\ny\nx3\n".getBytes()), output);
+        assertEquals("x1\nx2\n--\nx3\n", output.toString());
+    }
+
     @Test
     void testGrepPipelineInput() {
         String input = "Строка 1\nСтрока 2\nСтрока 3";
@@ -176,4 +205,118 @@ class GrepHandlerTest {
         assertTrue(result.contains("123456789012"));
         assertFalse(result.contains("12-34-567890"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRepeatedGrepReusesParsedArgumentsAndPattern() throws IOException {
+        GrepHandler handler = new GrepHandler(environment);
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            handler.execute(List.of("-i", "er+or"), new ByteArrayInputStream("Error\nok\n".getBytes()), output);
+            assertEquals("Error\n", output.toString());
+        }
+        handler.execute(List.of("-w", "er+or"), new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream());
+
+        assertEquals(new LruCache.Stats(2, 2, 2), handler.parameterCacheStats());
+        assertEquals(new LruCache.Stats(2, 2, 2), handler.patternCacheStats());
+    }
+
+    @Test
+    void testInvalidArgumentsAreNotCached() throws IOException {
+        GrepHandler handler = new GrepHandler(environment);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        handler.execute(List.of(), null, output);
+        handler.execute(List.of(), null, output);
+        assertEquals(0, handler.parameterCacheStats().size());
+    }
+
+    @Test
+    void testGrepMultipleFilesWithPrefixes(@TempDir Path tempDir) throws IOException {
+        Path first = tempDir.resolve("a.log");
+        Path second = tempDir.resolve("b.log");
+        Files.writeString(first, "ERROR one\nok\n");
+        Files.writeString(second, "fine\nERROR two\nafter\n");
+
+        Command grepCommand = new Command("grep", List.of("-A", "1", "ERROR", first.toString(), second.toString()));
+        String output = executor.execute(grepCommand, null);
+        assertEquals(first + ":ERROR one\n" + first + "-ok\n" + "--\n"
+                + second + ":ERROR two\n" + second + "-after\n", output);
+    }
+
+    @Test
+    void testGrepRecursiveWithGlobs(@TempDir Path tempDir) throws IOException {
+        Files.createDirectories(tempDir.resolve("logs/old"));
+        Files.writeString(tempDir.resolve("logs/b.log"), "ERROR b\n");
+        Files.writeString(tempDir.resolve("logs/a.log"), "ERROR a\n");
+        Files.writeString(tempDir.resolve("logs/old/c.log"), "ERROR c\n");
+        Files.writeString(tempDir.resolve("logs/old/c.txt"), "ERROR txt\n");
+        Files.writeString(tempDir.resolve("logs/skip.log"), "ERROR skip\n");
+
+        Path logs = tempDir.resolve("logs");
+        Command grepCommand = new Command("grep", List.of("-r", "--include", "*.log", "--exclude", "skip*",
+                "ERROR", logs.toString()));
+        String output = executor.execute(grepCommand, null);
+        assertEquals(logs.resolve("a.log") + ":ERROR a\n" + logs.resolve("b.log") + ":ERROR b\n"
+                + logs.resolve("old/c.log") + ":ERROR c\n", output);
+    }
+
+    @Test
+    void testGrepMissingFileAmongOthers(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("a.log");
+        Files.writeString(file, "ERROR\n");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = executor.execute(new Command("grep", List.of("ERROR", file.toString(), "missing.log")),
+                null, output);
+        assertEquals(2, status);
+        assertEquals(file + ":ERROR\ngrep: missing.log: No such file or directory\n", output.toString());
+    }
+
+    @Test
+    void testGrepCountAndMaxCount() throws IOException {
+        GrepHandler handler = new GrepHandler(environment);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        handler.execute(List.of("-c", "x"), new ByteArrayInputStream("x1\ny\nx2\nx3\n".getBytes()), output);
+        assertEquals("3\n", output.toString());
+
+        output.reset();
+        handler.execute(List.of("-m", "2", "-A", "1", "x"),
+                new ByteArrayInputStream("x1\ny\nx2\nx3\nx4\n".getBytes()), output);
+        assertEquals("x1\ny\nx2\nx3\n", output.toString());
+    }
+
+    @Test
+    void testGrepQuietStopsReadingAtFirstMatch() throws Exception {
+        GrepHandler handler = new GrepHandler(environment);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Pipe pipe = new Pipe(64);
+        Thread writer = new Thread(() -> {
+            try (OutputStream sink = pipe.sink()) {
+                sink.write("match\n".getBytes());
+                while (true) {
+                    sink.write("filler\n".getBytes());
+                }
+            } catch (IOException ignored) {
+            }
+        });
+        writer.start();
+
+        assertEquals(0, handler.execute(List.of("-q", "match"), pipe.source(), output));
+        assertEquals("", output.toString());
+        writer.join(5000);
+        assertFalse(writer.isAlive());
+    }
+
+    @Test
+    void testGrepFilesWithMatches(@TempDir Path tempDir) throws IOException {
+        Path first = tempDir.resolve("a.log");
+        Path second = tempDir.resolve("b.log");
+        Files.writeString(first, "ok\n");
+        Files.writeString(second, "ERROR\nERROR\n");
+
+        Command grepCommand = new Command("grep", List.of("-l", "ERROR", first.toString(), second.toString()));
+        assertEquals(second + "\n", executor.execute(grepCommand, null));
+
+        grepCommand = new Command("grep", List.of("-c", "ERROR", first.toString(), second.toString()));
+        assertEquals(first + ":0\n" + second + ":2\n", executor.execute(grepCommand, null));
+    }
+}
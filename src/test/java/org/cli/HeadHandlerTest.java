@@ -0,0 +1,65 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeadHandlerTest {
+
+    private final HeadHandler handler = new HeadHandler();
+
+    private String head(String input, String... arguments) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(0, handler.execute(List.of(arguments), new ByteArrayInputStream(input.getBytes()), output));
+        return output.toString();
+    }
+
+    @Test
+    void testLinesAndBytes() throws IOException {
+        String input = "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n11\n12\n";
+        assertEquals("1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n", head(input));
+        assertEquals("1\n2\n", head(input, "-n", "2"));
+        assertEquals("1\n2\n3\n", head(input, "-3"));
+        assertEquals("1\n2", head(input, "-c3"));
+        assertEquals("", head(input, "-n0"));
+        assertEquals("a", head("a", "-n", "5"));
+    }
+
+    @Test
+    void testStopsReadingOnceSatisfied() throws IOException {
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                return '\n';
+            }
+        };
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(0, handler.execute(List.of("-n", "3"), endless, output));
+        assertEquals("\n\n\n", output.toString());
+    }
+
+    @Test
+    void testMultipleFilesAndErrors(@TempDir Path tempDir) throws IOException {
+        Path first = Files.writeString(tempDir.resolve("a.txt"), "a1\na2\n");
+        Path second = Files.writeString(tempDir.resolve("b.txt"), "b1\n");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(1, handler.execute(List.of("-n", "1", first.toString(), "missing.txt", second.toString()),
+                null, output));
+        assertEquals("==> " + first + " <==\na1\n\n==> missing.txt <==\nhead: missing.txt: No such file\n"
+                + "\n==> " + second + " <==\nb1\n", output.toString());
+
+        output.reset();
+        assertEquals(1, handler.execute(List.of("-n", "x"), null, output));
+        assertEquals("head: invalid number of lines: 'x'\n", output.toString());
+    }
+}
@@ -0,0 +1,148 @@
+package org.cli;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobControlTest {
+
+    private Executor executor;
+    private JobControl jobs;
+
+    @BeforeEach
+    void setUp() {
+        executor = new Executor(new Environment());
+        jobs = executor.jobs();
+    }
+
+    private int start(String line, Command... commands) {
+        return jobs.start(line, new Pipeline(List.of(commands)), executor);
+    }
+
+    @Test
+    void testWaitPrintsOutputOfAllJobs() throws IOException {
+        assertEquals(1, start("echo one &", new Command("echo", List.of("one"))));
+        assertEquals(2, start("echo two | wc -w &",
+                new Command("echo", List.of("two")), new Command("wc", List.of("-w"))));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(0, jobs.await(List.of(), output));
+        assertEquals("one\n1\n", output.toString());
+
+        output.reset();
+        jobs.list(output);
+        assertEquals("", output.toString());
+        assertEquals(1, start("echo again &", new Command("echo", List.of("again"))));
+    }
+
+    @Test
+    void testFgTakesLatestJobAndReportsMissingJobs() throws IOException {
+        start("echo first &", new Command("echo", List.of("first")));
+        start("cat missing.txt &", new Command("cat", List.of("missing.txt")));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(1, jobs.foreground(List.of(), output));
+        assertEquals("cat: missing.txt: No such file\n", output.toString());
+
+        output.reset();
+        assertEquals(0, jobs.foreground(List.of("%1"), output));
+        assertEquals("first\n", output.toString());
+
+        output.reset();
+        assertEquals(1, jobs.foreground(List.of(), output));
+        assertEquals("fg: no current job\n", output.toString());
+        output.reset();
+        assertEquals(127, jobs.await(List.of("%7"), output));
+        assertEquals("wait: %7: no such job\n", output.toString());
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void testKillTerminatesExternalProcess() throws IOException {
+        int id = start("sleep 30 &", new Command("sleep", List.of("30")));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        jobs.list(output);
+        assertTrue(output.toString().matches("\\[1]  (Running|Queued) +sleep 30 &\\R"), output.toString());
+
+        long started = System.nanoTime();
+        assertEquals(0, executor.execute(new Command("kill", List.of("%" + id)), null, output));
+        assertEquals(JobControl.TERMINATED_STATUS, executor.execute(new Command("wait", List.of()), null, output));
+        assertTrue(System.nanoTime() - started < 10_000_000_000L, "sleep was not destroyed");
+    }
+
+    @Test
+    void testJobsQueueOnSingleThreadPool() throws IOException {
+        JobControl single = new JobControl(1);
+        single.start("echo a &", new Pipeline(List.of(new Command("echo", List.of("a")))), executor);
+        single.start("echo b &", new Pipeline(List.of(new Command("echo", List.of("b")))), executor);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(0, single.await(List.of("%2", "1"), output));
+        assertEquals("b\na\n", output.toString());
+    }
+
+    @Test
+    void testJobFailingWithErrorStillFinishes() throws InterruptedException {
+        Executor failing = new Executor(new Environment()) {
+            @Override
+            public int execute(Command command, InputStream input, OutputStream output) {
+                throw new StackOverflowError();
+            }
+        };
+        failing.jobs().start("deep &", new Pipeline(List.of(new Command("deep", List.of()))), failing);
+
+        AtomicInteger status = new AtomicInteger(-1);
+        Thread waiter = new Thread(() -> {
+            try {
+                status.set(failing.jobs().await(List.of(), new ByteArrayOutputStream()));
+            } catch (IOException ignored) {
+                // статус останется -1
+            }
+        });
+        waiter.setDaemon(true);
+        waiter.start();
+        waiter.join(10_000);
+        assertFalse(waiter.isAlive(), "wait blocked on a job that died with an Error");
+        assertEquals(1, status.get());
+    }
+
+    @Test
+    void testKillAllRemovesSpilledOutput(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path file = Files.writeString(tempDir.resolve("big.txt"), "x".repeat(2 * 1024 * 1024));
+        start("cat big.txt &", new Command("cat", List.of(file.toString())));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int i = 0; i < 100 && !output.toString().contains("Done"); i++) {
+            Thread.sleep(100);
+            output.reset();
+            jobs.list(output);
+        }
+        long spilled = countSpillFiles();
+
+        jobs.killAll();
+        assertEquals(spilled - 1, countSpillFiles());
+        output.reset();
+        jobs.list(output);
+        assertEquals("", output.toString());
+    }
+
+    private static long countSpillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(path -> path.getFileName().toString().startsWith("cli-spill")).count();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineDecoderTest {
+
+    @Test
+    void testDecodesAsciiAndUtf8Lines() {
+        LineDecoder decoder = new LineDecoder(StandardCharsets.UTF_8);
+        ByteBuffer data = ByteBuffer.wrap("plain ascii\nпривет, мир\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("plain ascii", decoder.decode(data, 0, 11).toString());
+        assertEquals("привет, мир", decoder.decode(data, 12, data.limit() - 1).toString());
+        assertEquals("ascii", decoder.decode(data, 6, 11).toString());
+    }
+
+    @Test
+    void testReplacesMalformedBytes() {
+        LineDecoder decoder = new LineDecoder(StandardCharsets.UTF_8);
+        ByteBuffer data = ByteBuffer.wrap(new byte[]{'a', (byte) 0xFF, 'b'});
+
+        assertEquals("a�b", decoder.decode(data, 0, 3).toString());
+    }
+
+    @Test
+    void testDecodesLatin1AndNonAsciiCompatibleCharsets() {
+        ByteBuffer latin1 = ByteBuffer.wrap("café".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals("café", new LineDecoder(StandardCharsets.ISO_8859_1).decode(latin1, 0, 4).toString());
+
+        ByteBuffer utf16 = ByteBuffer.wrap("текст".getBytes(StandardCharsets.UTF_16LE));
+        assertEquals("текст",
+                new LineDecoder(StandardCharsets.UTF_16LE).decode(utf16, 0, utf16.limit()).toString());
+    }
+
+    @Test
+    void testConfiguredCharsetFallsBackToDefault() {
+        assertEquals(StandardCharsets.UTF_16LE, Charsets.resolve("UTF-16LE"));
+        assertEquals(Charset.defaultCharset(), Charsets.resolve(null));
+        assertEquals(Charset.defaultCharset(), Charsets.resolve("no-such-charset"));
+    }
+}
@@ -0,0 +1,36 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineRingTest {
+
+    @Test
+    void testKeepsOnlyLastLines() throws IOException {
+        LineRing ring = new LineRing(2);
+        for (String line : new String[]{"one", "two", "a much longer third line"}) {
+            ring.add(ByteBuffer.wrap(line.getBytes()), 0, line.length());
+        }
+        assertEquals(2, ring.size());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ring.drainTo(output, "f-".getBytes());
+        assertEquals("f-two\nf-a much longer third line\n", output.toString());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void testZeroCapacityKeepsNothing() throws IOException {
+        LineRing ring = new LineRing(0);
+        ring.add(ByteBuffer.wrap("line".getBytes()), 0, 4);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ring.drainTo(output, null);
+        assertEquals("", output.toString());
+    }
+}
@@ -0,0 +1,71 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiteralLineMatcherTest {
+
+    @Test
+    void testIsLiteral() {
+        assertTrue(LiteralLineMatcher.isLiteral("ERROR"));
+        assertTrue(LiteralLineMatcher.isLiteral("request id"));
+        assertFalse(LiteralLineMatcher.isLiteral("ERR.R"));
+        assertFalse(LiteralLineMatcher.isLiteral("(special)"));
+    }
+
+    @Test
+    void testCaseSensitiveSearch() {
+        LineMatcher matcher = literal("ERROR", false, false);
+        assertTrue(matches(matcher, "2024 ERROR disk full"));
+        assertTrue(matches(matcher, "ERROR"));
+        assertFalse(matches(matcher, "2024 error disk full"));
+        assertFalse(matches(matcher, "ERRO"));
+    }
+
+    @Test
+    void testAsciiIgnoreCase() {
+        LineMatcher matcher = literal("error", true, false);
+        assertTrue(matches(matcher, "Fatal ErRoR here"));
+        assertFalse(matches(matcher, "all good"));
+    }
+
+    @Test
+    void testIgnoreCaseFallsBackToRegexForNonAsciiLines() {
+        LineMatcher matcher = literal("k", true, false);
+        assertTrue(matches(matcher, "K"));
+        assertFalse(matches(matcher, "Привет"));
+    }
+
+    @Test
+    void testWholeWordIsVerified() {
+        LineMatcher matcher = literal("id", false, true);
+        assertTrue(matches(matcher, "request id=5"));
+        assertFalse(matches(matcher, "requestid=5"));
+    }
+
+    @Test
+    void testUtf8Needle() {
+        LineMatcher matcher = literal("синтаксис", false, false);
+        assertTrue(matches(matcher, "Минимальный синтаксис grep"));
+        assertFalse(matches(matcher, "Другая строка"));
+    }
+
+    private static LineMatcher literal(String pattern, boolean ignoreCase, boolean wholeWord) {
+        String regex = wholeWord ? "\\b" + pattern + "\\b" : pattern;
+        int flags = Pattern.UNICODE_CASE | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+        LineMatcher verifier = new RegexLineMatcher(Pattern.compile(regex, flags), StandardCharsets.UTF_8);
+        return new LiteralLineMatcher(pattern.getBytes(StandardCharsets.UTF_8), ignoreCase, verifier, wholeWord);
+    }
+
+    private static boolean matches(LineMatcher matcher, String line) {
+        byte[] bytes = ("prefix\n" + line + "\nsuffix").getBytes(StandardCharsets.UTF_8);
+        int from = "prefix\n".length();
+        int to = bytes.length - "\nsuffix".length();
+        return matcher.matches(ByteBuffer.wrap(bytes), from, to);
+    }
+}
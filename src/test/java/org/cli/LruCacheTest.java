@@ -0,0 +1,44 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.get("a", String::length);
+        cache.get("bb", String::length);
+        cache.get("a", k -> fail("should be cached"));
+        cache.get("ccc", String::length);
+
+        assertEquals(2, cache.get("bb", k -> 2));
+        assertEquals(new LruCache.Stats(1, 4, 2), cache.stats());
+    }
+
+    @Test
+    void testClearResetsCounters() {
+        LruCache<String, Integer> cache = new LruCache<>(4);
+        cache.get("a", String::length);
+        cache.get("a", String::length);
+        cache.clear();
+        assertEquals(new LruCache.Stats(0, 0, 0), cache.stats());
+    }
+
+    @Test
+    void testEvictsByWeight() {
+        LruCache<String, String> cache = new LruCache<>(5, String::length);
+        cache.put("a", "aa");
+        cache.put("b", "bbb");
+        assertEquals("aa", cache.getIfPresent("a"));
+        cache.put("c", "cc");
+        cache.put("huge", "xxxxxx");
+
+        assertNull(cache.getIfPresent("b"));
+        assertNull(cache.getIfPresent("huge"));
+        assertEquals(4, cache.weight());
+        assertEquals(new LruCache.Stats(1, 2, 2), cache.stats());
+    }
+}
@@ -3,13 +3,19 @@ package org.cli;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MainTest {
@@ -47,8 +53,95 @@ class MainTest {
     void testEmptyInputKeepsWaiting() {
         String input = "\n";
         System.setIn(new ByteArrayInputStream(input.getBytes()));
-        Main.main(new String[]{});
+        Main.main(new String[]{"-i"});
         assertTrue(outContent.toString().contains(">"));
     }
 
+    @Test
+    void testPipedInputHasNoPrompt() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = Main.run(new String[]{}, new ByteArrayInputStream("echo hello\n".getBytes()), output, false);
+        assertEquals(0, status);
+        assertEquals("hello\n", output.toString());
+        assertFalse(outContent.toString().contains(">"));
+    }
+
+    @Test
+    void testCommandStringMode() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = Main.run(new String[]{"-c", "echo one two | wc -w"}, InputStream.nullInputStream(), output, true);
+        assertEquals(0, status);
+        assertEquals("2\n", output.toString());
+        assertFalse(outContent.toString().contains(">"));
+    }
+
+    @Test
+    void testBackgroundJobsDoNotChangeSessionVariables() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = Main.run(new String[]{"-c", "set X=1\nset X=2 &\nwait\necho $X"},
+                InputStream.nullInputStream(), output, false);
+        assertEquals(0, status);
+        assertEquals("[1]\n1\n", output.toString());
+    }
+
+    @Test
+    void testEchoPrintsQuotedVariableReferencesAsIs() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = Main.run(new String[]{"-c", "set X=value\necho '$HOME' '$X' \"$X\" $ $X"},
+                InputStream.nullInputStream(), output, false);
+        assertEquals(0, status);
+        assertEquals("$HOME $X value $ value\n", output.toString());
+    }
+
+    @Test
+    void testBackgroundJobOutputIsPrintedByWait() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = Main.run(new String[]{"-c", "echo background &\njobs | wc -l\nwait"},
+                InputStream.nullInputStream(), output, false);
+        assertEquals(0, status);
+        assertEquals("[1]\n1\nbackground\n", output.toString());
+    }
+
+    @Test
+    void testScriptModeReturnsLastStatus(@TempDir Path tempDir) throws IOException {
+        Path script = tempDir.resolve("script.txt");
+        Files.writeString(script, "# comment\nset A=1\necho $A\n\necho missing | grep nothing\n");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = Main.run(new String[]{script.toString()}, InputStream.nullInputStream(), output, true);
+        assertEquals(1, status);
+        assertEquals("1\n", output.toString());
+    }
+
+    @Test
+    void testScriptStopsAtExitWithStatus(@TempDir Path tempDir) throws IOException {
+        Path script = tempDir.resolve("script.txt");
+        Files.writeString(script, "echo before\nexit 3\necho after\n");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(3, Main.run(new String[]{script.toString()}, InputStream.nullInputStream(), output, false));
+        assertEquals("before\n", output.toString());
+    }
+
+    @Test
+    void testExitInsidePipelineKeepsEarlierOutput() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(4, Main.run(new String[]{"-c", "echo hi\necho a | exit 4\necho after"},
+                InputStream.nullInputStream(), output, false));
+        assertEquals("hi\n", output.toString());
+
+        output.reset();
+        assertEquals(5, Main.run(new String[]{"-c", "echo hi\nparallel exit ::: 5\necho after"},
+                InputStream.nullInputStream(), output, false));
+        assertEquals("hi\n", output.toString());
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertEquals(2, Main.run(new String[]{"-c"}, InputStream.nullInputStream(), new ByteArrayOutputStream(),
+                false));
+        assertEquals(127, Main.run(new String[]{"missing-script.txt"}, InputStream.nullInputStream(),
+                new ByteArrayOutputStream(), false));
+    }
+
 }
@@ -0,0 +1,105 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelGrepTest {
+
+    private final Environment environment = new Environment();
+    private final Executor executor = new Executor(environment);
+
+    @Test
+    void testParallelFlagMatchesSequential(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("log.txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            content.append(i % 7 == 0 ? "ERROR " : "info ").append(i).append('\n');
+        }
+        Files.writeString(file, content);
+
+        String sequential = executor.execute(new Command("grep", List.of("-A", "2", "ERROR", file.toString())), null);
+        String parallel = executor.execute(
+                new Command("grep", List.of("--parallel", "-A", "2", "ERROR", file.toString())), null);
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void testParallelCountMatchesSequential(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("log.txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            content.append(i % 7 == 0 ? "ERROR " : "info ").append(i).append('\n');
+        }
+        Files.writeString(file, content);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertEquals(286, new ParallelGrep(pool, 64).count(channel, () -> regex("ERROR")));
+        } finally {
+            pool.shutdown();
+        }
+        String parallel = executor.execute(
+                new Command("grep", List.of("--parallel", "-c", "ERROR", file.toString())), null);
+        assertEquals("286\n", parallel);
+    }
+
+    @Test
+    void testContextContinuesAcrossSmallSegments(@TempDir Path tempDir) throws IOException {
+        Random random = new Random(7);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            content.append(random.nextInt(20) == 0 ? "match" : "line").append(' ').append(i).append('\n');
+        }
+        content.append("match without newline");
+        Path file = tempDir.resolve("segments.txt");
+        Files.writeString(file, content);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int context : new int[]{0, 1, 3, 30}) {
+                String expected = executor.execute(
+                        new Command("grep", List.of("-A", String.valueOf(context), "match")), content.toString());
+
+                ParallelGrep grep = new ParallelGrep(pool, 16);
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    assertTrue(grep.search(channel, () -> regex("match"), context, true, output));
+                }
+                assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testNoMatches(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("empty-result.txt");
+        Files.writeString(file, "a\nb\nc\n");
+
+        ParallelGrep grep = new ParallelGrep(ForkJoinPool.commonPool(), 1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertFalse(grep.search(channel, () -> regex("z"), 1, true, output));
+        }
+        assertEquals(0, output.size());
+    }
+
+    private static LineMatcher regex(String pattern) {
+        return new RegexLineMatcher(Pattern.compile(pattern), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+package org.cli;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelHandlerTest {
+
+    private Executor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new Executor(new Environment());
+    }
+
+    private String run(List<String> arguments, String input, int expectedStatus) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayInputStream stream = input == null ? null : new ByteArrayInputStream(input.getBytes());
+        assertEquals(expectedStatus, executor.execute(new Command("parallel", arguments), stream, output));
+        return output.toString();
+    }
+
+    @Test
+    void testKeepOrderRunsTemplatePerArgument(@TempDir Path tempDir) throws IOException {
+        Path first = Files.writeString(tempDir.resolve("a.txt"), "foo\nbar\nfoo\n");
+        Path second = Files.writeString(tempDir.resolve("b.txt"), "foo\n");
+
+        String output = run(List.of("-j", "2", "-k", "cat {} | grep -c foo", ":::",
+                first.toString(), second.toString()), null, 0);
+        assertEquals("2\n1\n", output);
+    }
+
+    @Test
+    void testArgumentsFromInputAreAppendedWithoutPlaceholder() throws IOException {
+        String output = run(List.of("-k", "echo", "item"), "one\n\ntwo words\n", 0);
+        assertEquals("item one\nitem two words\n", output);
+    }
+
+    @Test
+    void testStatusCountsFailedJobsAndJobLogReportsEach() throws IOException {
+        String output = run(List.of("-k", "-j1", "--joblog", "-", "cat", ":::", "missing-1", "missing-2"), null, 2);
+        String[] lines = output.split("\n");
+
+        assertEquals("cat: missing-1: No such file", lines[0]);
+        assertEquals("cat: missing-2: No such file", lines[1]);
+        assertEquals("Seq\tStarttime\tJobRuntime\tExitval\tCommand", lines[2]);
+        assertTrue(lines[3].matches("1\t\\d+\\.\\d{3}\t\\d+\\.\\d{3}\t1\tcat missing-1"), lines[3]);
+        assertTrue(lines[4].endsWith("\t1\tcat missing-2"), lines[4]);
+    }
+
+    @Test
+    void testArgumentsWithSpacesStayOneWord() {
+        assertEquals("wc -l 'my file.txt'", ParallelHandler.expand(List.of("wc", "-l"), "my file.txt"));
+        assertEquals("grep x 'it'\"'\"'s' | wc", ParallelHandler.expand(List.of("grep x {} | wc"), "it's"));
+    }
+
+    @Test
+    void testQuotesAndVariablesInArgumentsReachCommandAsIs() throws IOException {
+        String output = run(List.of("-k", "echo", ":::", "it's", "say \"hi\"", "$HOME", "'$X' \"$Y\""), null, 0);
+        assertEquals("it's\nsay \"hi\"\n$HOME\n'$X' \"$Y\"\n", output);
+    }
+
+    @Test
+    void testInvalidUsage() throws IOException {
+        assertEquals("parallel: missing command\n", run(List.of("-k", ":::", "a"), null, 2));
+        assertEquals("parallel: invalid number of jobs: x\n", run(List.of("-j", "x", "echo"), null, 2));
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void testExternalCommandsRunConcurrently() throws IOException {
+        long start = System.nanoTime();
+        String output = run(List.of("-j", "4", "-k", "sleep 1 | echo {}", ":::", "a", "b", "c", "d"), null, 0);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals("a\nb\nc\nd\n", output);
+        assertTrue(elapsed < 3_000_000_000L, "jobs did not overlap: " + elapsed / 1_000_000 + " ms");
+    }
+
+    @Test
+    void testUnprintedOutputIsRemovedWhenWritingFails(@TempDir Path tempDir) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("big.txt"), "x".repeat(2 * 1024 * 1024));
+        long spilled = countSpillFiles();
+        OutputStream closed = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new Pipe.BrokenPipeException();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new Pipe.BrokenPipeException();
+            }
+        };
+
+        List<String> arguments = List.of("-k", "-j", "4", "cat", ":::", file.toString(), file.toString(),
+                file.toString(), file.toString(), file.toString(), file.toString());
+        assertThrows(IOException.class,
+                () -> executor.execute(new Command("parallel", arguments), null, closed));
+        assertEquals(spilled, countSpillFiles());
+    }
+
+    private static long countSpillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(path -> path.getFileName().toString().startsWith("cli-spill")).count();
+        }
+    }
+}
@@ -97,4 +97,48 @@ class ParserTest {
         assertEquals("wc", commands.get(1).getName());
         assertTrue(commands.get(1).getArguments().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testQuotedPipeDoesNotSplitPipeline() {
+        List<Command> commands = parser.parse("echo \"a | b\" 'c|d' | wc");
+        assertEquals(2, commands.size());
+        assertEquals(List.of("a | b", "c|d"), commands.get(0).getArguments());
+        assertEquals("wc", commands.get(1).getName());
+    }
+
+    @Test
+    void testVariablesExpandOutsideSingleQuotes() {
+        environment.setVariable("FILES", "a.txt  b.txt");
+        List<Command> commands = parser.parse("cat $FILES \"$FILES\" '$USER' x$USER\"!\"");
+        assertEquals(List.of("a.txt", "b.txt", "a.txt  b.txt", "$USER", "xKatya!"), commands.get(0).getArguments());
+    }
+
+    @Test
+    void testEmptyValuesAndQuotedEmptyArguments() {
+        List<Command> commands = parser.parse("echo $UNKNOWN \"\" \"$UNKNOWN\" $");
+        assertEquals(List.of("", "", "$"), commands.get(0).getArguments());
+    }
+
+    @Test
+    void testRepeatedLineIsLexedOnceButExpandedEachTime() {
+        parser.parse("echo $USER | wc");
+        environment.setVariable("USER", "Masha");
+        List<Command> commands = parser.parse("echo $USER | wc");
+
+        assertEquals(List.of("Masha"), commands.get(0).getArguments());
+        assertEquals(new LruCache.Stats(1, 1, 1), parser.cacheStats());
+    }
+
+    @Test
+    void testTrailingAmpersandMarksBackgroundLine() {
+        Parser.Line line = parser.parseLine("grep -r foo . | wc -l &  ");
+        assertTrue(line.background());
+        assertEquals(2, line.commands().size());
+        assertEquals(List.of("-l"), line.commands().get(1).getArguments());
+
+        assertFalse(parser.parseLine("echo a&b '&'").background());
+        assertEquals(List.of("a&b", "&"), parser.parse("echo a&b '&'").get(0).getArguments());
+        assertTrue(parser.parseLine("echo done&").background());
+        assertEquals(List.of("done"), parser.parse("echo done&").get(0).getArguments());
+    }
+}
@@ -0,0 +1,56 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipeTest {
+
+    @Test
+    void testTransfersDataLargerThanCapacity() throws Exception {
+        Pipe pipe = new Pipe(16);
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> done = writer.submit(() -> {
+                try (OutputStream sink = pipe.sink()) {
+                    sink.write(data);
+                }
+                return null;
+            });
+            byte[] received;
+            try (InputStream source = pipe.source()) {
+                received = source.readAllBytes();
+            }
+            done.get();
+            assertArrayEquals(data, received);
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWriteAfterReaderClosedIsBrokenPipe() throws IOException {
+        Pipe pipe = new Pipe(16);
+        pipe.source().close();
+        assertThrows(Pipe.BrokenPipeException.class, () -> pipe.sink().write(1));
+    }
+
+    @Test
+    void testAbortFailsReader() {
+        Pipe pipe = new Pipe(16);
+        pipe.abort();
+        assertThrows(IOException.class, () -> pipe.source().read());
+    }
+}
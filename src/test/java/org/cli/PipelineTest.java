@@ -1,17 +1,35 @@
 package org.cli;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PipelineTest {
@@ -79,4 +97,166 @@ class PipelineTest {
 
         assertTrue(result.contains("2 7"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLargeDataThroughSmallPipes(@TempDir Path tempDir) throws IOException {
+        File testFile = tempDir.resolve("big.txt").toFile();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(testFile))) {
+            for (int i = 0; i < 50_000; i++) {
+                writer.write(i % 10 == 0 ? "ERROR line " + i + "\n" : "ok line " + i + "\n");
+            }
+        }
+
+        List<Command> commands = List.of(
+                new Command("cat", List.of(testFile.getAbsolutePath())),
+                new Command("grep", List.of("ERROR")),
+                new Command("wc", List.of())
+        );
+        ExecutorService stageExecutor = Executors.newCachedThreadPool();
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            int status = new Pipeline(commands, 128, stageExecutor).execute(executor, output);
+
+            assertEquals(0, status);
+            assertTrue(output.toString().startsWith("5000 15000 "));
+        } finally {
+            stageExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void testBinaryDataPassesThroughUnchanged(@TempDir Path tempDir) throws IOException {
+        byte[] data = new byte[256 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + (i >> 8));
+        }
+        Path file = tempDir.resolve("data.bin");
+        Files.write(file, data);
+
+        Pipeline pipeline = new Pipeline(List.of(
+                new Command("cat", List.of(file.toString())),
+                new Command("tr", List.of("x", "x")),
+                new Command("cat", List.of())));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(0, pipeline.execute(executor, output));
+
+        byte[] expected = new byte[data.length + 1];
+        System.arraycopy(data, 0, expected, 0, data.length);
+        expected[data.length] = '\n';
+        assertArrayEquals(expected, output.toByteArray());
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void testHeadStopsEndlessUpstreamStages(@TempDir Path tempDir) throws InterruptedException, IOException {
+        Pipeline endless = new Pipeline(List.of(
+                new Command("yes", List.of()),
+                new Command("grep", List.of("y")),
+                new Command("head", List.of("-n", "2"))));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(0, executeWithTimeout(endless, output));
+        assertEquals("y\ny\n", output.toString());
+
+        Path file = tempDir.resolve("y.txt");
+        Files.writeString(file, "y\n".repeat(1_000_000));
+        List<String> arguments = new ArrayList<>(List.of("y"));
+        arguments.addAll(Collections.nCopies(100, file.toString()));
+        Pipeline manyFiles = new Pipeline(List.of(
+                new Command("grep", arguments),
+                new Command("head", List.of("-n", "2"))));
+        output.reset();
+        long spilled = countSpillFiles();
+        assertEquals(0, executeWithTimeout(manyFiles, output));
+        assertEquals(file + ":y\n" + file + ":y\n", output.toString());
+        assertEquals(spilled, countSpillFiles());
+    }
+
+    private static long countSpillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(path -> path.getFileName().toString().startsWith("cli-spill")).count();
+        }
+    }
+
+    private int executeWithTimeout(Pipeline pipeline, OutputStream output) throws InterruptedException {
+        AtomicInteger status = new AtomicInteger(-1);
+        Thread thread = new Thread(() -> {
+            try {
+                status.set(pipeline.execute(executor, output));
+            } catch (IOException ignored) {
+                // статус останется -1
+            }
+        });
+        thread.start();
+        thread.join(10_000);
+        assertFalse(thread.isAlive(), "upstream stages did not stop");
+        return status.get();
+    }
+
+    @Test
+    void testFailingStageCancelsPipeline() {
+        Executor failing = new Executor(environment) {
+            @Override
+            public int execute(Command command, InputStream input, OutputStream output) throws IOException {
+                if (command.getName().equals("fail")) {
+                    throw new IOException("stage failed");
+                }
+                return super.execute(command, input, output);
+            }
+        };
+        List<Command> commands = List.of(
+                new Command("echo", List.of("data")),
+                new Command("fail", List.of()),
+                new Command("wc", List.of())
+        );
+
+        IOException error = assertThrows(IOException.class,
+                () -> new Pipeline(commands).execute(failing, new ByteArrayOutputStream()));
+        assertEquals("stage failed", error.getMessage());
+    }
+
+    @Test
+    void testTimeReportsEveryStage() throws IOException {
+        List<Command> commands = List.of(
+                new Command("time", List.of("echo", "one two")),
+                new Command("wc", List.of("-w")));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        int status = new Pipeline(commands).execute(executor, output);
+
+        assertEquals(0, status);
+        String[] lines = output.toString().split("\n");
+        assertEquals("2", lines[0]);
+        assertTrue(lines[1].startsWith("#   command"));
+        assertTrue(lines[2].matches("1 +echo one two +0 +[0-9.]+ +([0-9.]+|-) +0 +7 +([0-9]+|-)"), lines[2]);
+        assertTrue(lines[3].matches("2 +wc -w +0 +[0-9.]+ +([0-9.]+|-) +7 +1 +([0-9]+|-)"), lines[3]);
+        assertTrue(lines[4].trim().startsWith("total"));
+    }
+
+    @Test
+    void testTimeWithoutCommand() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = new Pipeline(List.of(new Command("time", List.of()))).execute(executor, output);
+        assertEquals(1, status);
+        assertEquals("time: missing command\n", output.toString());
+    }
+
+    @Test
+    void testStagesAreRecordedAsJfrEvents(@TempDir Path tempDir) throws IOException {
+        Path dump = tempDir.resolve("stages.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.cli.Stage");
+            recording.start();
+            new Pipeline(List.of(new Command("echo", List.of("abc")), new Command("wc", List.of("-c"))))
+                    .execute(executor, new ByteArrayOutputStream());
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertEquals(2, events.size());
+        RecordedEvent wc = events.stream().filter(e -> e.getInt("stage") == 1).findFirst().orElseThrow();
+        assertEquals("wc -c", wc.getString("command"));
+        assertEquals(3, wc.getLong("bytesIn"));
+    }
+}
@@ -0,0 +1,102 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortHandlerTest {
+
+    private final SortHandler handler = new SortHandler();
+
+    private String sort(String input, String... arguments) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(0, handler.execute(List.of(arguments),
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output));
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testSortsBytesAndReverses() throws IOException {
+        assertEquals("B\na\nb\nc\n", sort("c\nb\na\nB"));
+        assertEquals("c\nb\na\nB\n", sort("c\nb\na\nB\n", "-r"));
+    }
+
+    @Test
+    void testNumericUniqueAndKeys() throws IOException {
+        assertEquals("-2\n1.5\n3\n10\n", sort("10\n3\n-2\n1.5\n", "-n"));
+        assertEquals("a\nb\n", sort("b\na\nb\na\n", "-u"));
+        assertEquals("x 1\nz 1\ny 2\n", sort("y 2\nz 1\nx 1\n", "-k", "2"));
+        assertEquals("bob:30\nalice:25\n", sort("alice:25\nbob:30\n", "-t", ":", "-k2,2", "-nr"));
+        assertEquals("c 1\na 2\n", sort("a 2\nb 2\nc 1\n", "-k", "2", "-n", "-u"));
+    }
+
+    @Test
+    void testLargeInputIsMergedFromSpilledRuns(@TempDir Path tempDir) throws IOException {
+        List<String> lines = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            lines.add(Integer.toString(random.nextInt(1_000_000)));
+        }
+        Path file = tempDir.resolve("numbers.txt");
+        Files.write(file, lines);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(0, handler.execute(List.of("-n", "-S", "64K", file.toString()), null, output));
+
+        List<String> expected = new ArrayList<>(lines);
+        expected.sort((a, b) -> Integer.compare(Integer.parseInt(a), Integer.parseInt(b)));
+        assertEquals(String.join("\n", expected) + "\n", output.toString());
+
+        output.reset();
+        assertEquals(0, handler.execute(List.of("-u", "-S", "16K", file.toString()), null, output));
+        List<String> unique = new ArrayList<>(new TreeSet<>(lines));
+        assertEquals(String.join("\n", unique) + "\n", output.toString());
+    }
+
+    @Test
+    void testUniqueKeyKeepsFirstLineAcrossSpilledRuns(@TempDir Path tempDir) throws IOException {
+        List<String> lines = new ArrayList<>();
+        Map<String, String> first = new TreeMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            String line = "k" + random.nextInt(50) + " " + i;
+            lines.add(line);
+            first.putIfAbsent(line.substring(0, line.indexOf(' ')), line);
+        }
+        Path file = tempDir.resolve("keys.txt");
+        Files.write(file, lines);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(0, handler.execute(List.of("-u", "-k1,1", "-S", "16K", file.toString()), null, output));
+        assertEquals(String.join("\n", first.values()) + "\n", output.toString());
+    }
+
+    @Test
+    void testErrors() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(2, handler.execute(List.of("missing.txt"), null, output));
+        assertEquals("sort: missing.txt: No such file\n", output.toString());
+
+        output.reset();
+        assertEquals(2, handler.execute(List.of("-x"), null, output));
+        assertEquals("sort: invalid option -- 'x'\n", output.toString());
+
+        output.reset();
+        assertEquals(2, handler.execute(List.of("-k", "0"), null, output));
+        assertEquals("sort: invalid key: 0\n", output.toString());
+    }
+}
@@ -0,0 +1,65 @@
+package org.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WcHandlerTest {
+
+    private final Environment environment = new Environment();
+    private final Executor executor = new Executor(environment);
+
+    @Test
+    void testByteCountIsBytesNotChars() {
+        String output = executor.execute(new Command("wc", List.of()), "Привет мир");
+        assertEquals("1 2 19", output);
+    }
+
+    @Test
+    void testSelectedCounts(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.txt");
+        Files.writeString(file, "one two\nthree\n");
+
+        assertEquals("2 " + file + "\n", executor.execute(new Command("wc", List.of("-l", file.toString())), null));
+        assertEquals("3 14 " + file + "\n", executor.execute(new Command("wc", List.of("-wc", file.toString())), null));
+        assertEquals("14", executor.execute(new Command("wc", List.of("-c")), "one two\nthree\n"));
+    }
+
+    @Test
+    void testInvalidOption() {
+        String output = executor.execute(new Command("wc", List.of("-x")), "data");
+        assertEquals("wc: invalid option -- 'x'", output);
+    }
+
+    @Test
+    void testParallelCountsMatchSequential(@TempDir Path tempDir) throws IOException {
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder();
+        String[] pieces = {"word", " ", "  ", "\n", "\t", "ab", "слово", "x"};
+        for (int i = 0; i < 5_000; i++) {
+            content.append(pieces[random.nextInt(pieces.length)]);
+        }
+        byte[] data = content.toString().getBytes(StandardCharsets.UTF_8);
+        Path file = tempDir.resolve("random.txt");
+        Files.write(file, data);
+
+        WcHandler chunked = new WcHandler(ForkJoinPool.commonPool(), 7);
+        ByteArrayOutputStream fromFile = new ByteArrayOutputStream();
+        chunked.execute(List.of(file.toString()), null, fromFile);
+        ByteArrayOutputStream fromStream = new ByteArrayOutputStream();
+        chunked.execute(List.of(), new ByteArrayInputStream(data), fromStream);
+
+        assertEquals(fromStream + " " + file + "\n", fromFile.toString());
+    }
+}